@@ -0,0 +1,124 @@
+package com.zp.snakeviewmaker.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * rounding the corners of an avatar with {@link CornerMaskCache} against the drawRoundRect and
+ * BitmapShader path RoundTransformation used before, for every corner combination. the old path
+ * is reproduced the way it drew: a new canvas, paint and shader per image, one rounded rect and
+ * square rects over the corners which stay square.
+ * the times per image are logged and saved to files/corner_mask_benchmark.json of the app
+ */
+@RunWith(AndroidJUnit4.class)
+public class CornerMaskBenchmark {
+
+    private static final String TAG = "CornerMaskBenchmark";
+    private static final int SIZE = 96;
+    private static final float RADIUS = 16;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 500;
+    private static final int[] FLAGS = {CornerMaskCache.CORNER_TOP_LEFT, CornerMaskCache.CORNER_TOP_RIGHT,
+            CornerMaskCache.CORNER_BOTTOM_RIGHT, CornerMaskCache.CORNER_BOTTOM_LEFT};
+
+    private final Paint mSourcePaint = new Paint();
+    private final Canvas mCanvas = new Canvas();
+
+    @Test
+    public void compareForEveryCornerCombination() throws Exception {
+        mSourcePaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        Bitmap source = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        source.eraseColor(Color.RED);
+        Bitmap out = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        JSONArray results = new JSONArray();
+        for (int corners = 1; corners <= CornerMaskCache.CORNER_ALL; corners++) {
+            for (int i = 0; i < WARMUP; i++) {
+                drawWithShader(source, out, corners);
+                drawWithMask(source, out, corners);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                drawWithShader(source, out, corners);
+            long shaderNanos = (System.nanoTime() - start) / ITERATIONS;
+            assertCorners(out, corners);
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                drawWithMask(source, out, corners);
+            long maskNanos = (System.nanoTime() - start) / ITERATIONS;
+            assertCorners(out, corners);
+            Log.i(TAG, "corners " + corners + ": shader " + shaderNanos + "ns, mask " + maskNanos + "ns");
+            results.put(new JSONObject()
+                    .put("corners", corners)
+                    .put("shaderNanos", shaderNanos)
+                    .put("maskNanos", maskNanos));
+        }
+        File file = new File(InstrumentationRegistry.getTargetContext().getFilesDir(), "corner_mask_benchmark.json");
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(new JSONObject()
+                    .put("size", SIZE)
+                    .put("radius", RADIUS)
+                    .put("iterations", ITERATIONS)
+                    .put("results", results)
+                    .toString(2));
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void drawWithMask(Bitmap source, Bitmap out, int corners) {
+        mCanvas.setBitmap(out);
+        mCanvas.drawBitmap(source, 0, 0, mSourcePaint);
+        CornerMaskCache.getInstance().apply(mCanvas, SIZE, SIZE, RADIUS, corners);
+        mCanvas.setBitmap(null);
+    }
+
+    private static void drawWithShader(Bitmap source, Bitmap out, int corners) {
+        out.eraseColor(0);
+        Canvas canvas = new Canvas(out);
+        Paint paint = new Paint();
+        paint.setAntiAlias(true);
+        paint.setShader(new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        canvas.drawRoundRect(new RectF(0, 0, SIZE, SIZE), RADIUS, RADIUS, paint);
+        if ((corners & CornerMaskCache.CORNER_TOP_LEFT) == 0)
+            canvas.drawRect(new RectF(0, 0, RADIUS, RADIUS), paint);
+        if ((corners & CornerMaskCache.CORNER_TOP_RIGHT) == 0)
+            canvas.drawRect(new RectF(SIZE - RADIUS, 0, SIZE, RADIUS), paint);
+        if ((corners & CornerMaskCache.CORNER_BOTTOM_RIGHT) == 0)
+            canvas.drawRect(new RectF(SIZE - RADIUS, SIZE - RADIUS, SIZE, SIZE), paint);
+        if ((corners & CornerMaskCache.CORNER_BOTTOM_LEFT) == 0)
+            canvas.drawRect(new RectF(0, SIZE - RADIUS, RADIUS, SIZE), paint);
+    }
+
+    /**
+     * both paths give the same shape: the corner pixel is cleared where the corner is rounded
+     */
+    private static void assertCorners(Bitmap out, int corners) {
+        int[] xs = {0, SIZE - 1, SIZE - 1, 0};
+        int[] ys = {0, 0, SIZE - 1, SIZE - 1};
+        for (int i = 0; i < FLAGS.length; i++) {
+            int alpha = Color.alpha(out.getPixel(xs[i], ys[i]));
+            assertEquals((corners & FLAGS[i]) != 0 ? 0 : 255, alpha);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.zp.snakeviewmaker.widget;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * a drag through {@link SnakeViewMaker#onTouch}: the events are in view coordinates, the moves
+ * carry historical samples and the release velocity comes from the velocity tracker. what the
+ * maker makes of them is read back from its touch recorder
+ */
+@RunWith(AndroidJUnit4.class)
+public class TouchPathTest {
+
+    // the target is this far from the left top of the screen
+    private static final float OFFSET_X = 100;
+    private static final float OFFSET_Y = 50;
+    // the finger moves 5px right and 3px down every 20ms, 250px/s and 150px/s
+    private static final long STEP = 20;
+    private static final float STEP_X = 5;
+    private static final float STEP_Y = 3;
+
+    private final TouchTrace mTrace = new TouchTrace();
+    private final boolean[] mHandled = new boolean[6];
+    private long mDownTime;
+
+    @Test
+    public void dragIsRecordedInRawCoordinatesWithItsHistory() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                drag();
+            }
+        });
+        assertTrue("a down on a target which is not clickable is taken", mHandled[0]);
+        assertFalse("a move before the drag delay is no drag", mHandled[1]);
+        assertTrue(mHandled[2]);
+        assertTrue(mHandled[3]);
+        assertTrue(mHandled[4]);
+        assertTrue("the up of a drag releases the snake", mHandled[5]);
+
+        // down, the early move, three samples of the batched move, two moves and the up
+        assertEquals(8, mTrace.size());
+        assertEquals(MotionEvent.ACTION_DOWN, mTrace.getAction(0));
+        assertEquals(MotionEvent.ACTION_UP, mTrace.getAction(7));
+        for (int i = 1; i < 7; i++)
+            assertEquals(MotionEvent.ACTION_MOVE, mTrace.getAction(i));
+        int[] steps = {0, 1, 8, 9, 10, 11, 12, 13};
+        for (int i = 0; i < steps.length; i++) {
+            assertEquals(steps[i] * STEP, mTrace.getTime(i) - mDownTime);
+            assertEquals(rawX(steps[i]), mTrace.getRawX(i), 0.01f);
+            assertEquals(rawY(steps[i]), mTrace.getRawY(i), 0.01f);
+        }
+        assertEquals(STEP_X * 1000 / STEP, mTrace.getVelocityX(7), 25);
+        assertEquals(STEP_Y * 1000 / STEP, mTrace.getVelocityY(7), 15);
+    }
+
+    private void drag() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        FrameLayout parent = new FrameLayout(context);
+        View target = new View(context);
+        parent.addView(target);
+        SnakeViewMaker maker = new SnakeViewMaker(context)
+                .addTargetView(target)
+                .setTouchRecorder(mTrace);
+        mDownTime = SystemClock.uptimeMillis();
+        mHandled[0] = touch(maker, target, event(MotionEvent.ACTION_DOWN, 0));
+        mHandled[1] = touch(maker, target, event(MotionEvent.ACTION_MOVE, 1));
+        // past the drag delay, one move with the samples of two more steps in its history
+        MotionEvent batch = event(MotionEvent.ACTION_MOVE, 8);
+        batch.addBatch(mDownTime + 9 * STEP, rawX(9), rawY(9), 1f, 1f, 0);
+        batch.addBatch(mDownTime + 10 * STEP, rawX(10), rawY(10), 1f, 1f, 0);
+        mHandled[2] = touch(maker, target, batch);
+        mHandled[3] = touch(maker, target, event(MotionEvent.ACTION_MOVE, 11));
+        mHandled[4] = touch(maker, target, event(MotionEvent.ACTION_MOVE, 12));
+        mHandled[5] = touch(maker, target, event(MotionEvent.ACTION_UP, 13));
+        maker.release();
+    }
+
+    /**
+     * the event is offset to the coordinates of the target, as the target would get it
+     */
+    private static boolean touch(SnakeViewMaker maker, View target, MotionEvent event) {
+        event.offsetLocation(-OFFSET_X, -OFFSET_Y);
+        try {
+            return maker.onTouch(target, event);
+        } finally {
+            event.recycle();
+        }
+    }
+
+    /**
+     * the event of the given step at its raw position
+     */
+    private MotionEvent event(int action, int step) {
+        return MotionEvent.obtain(mDownTime, mDownTime + step * STEP, action, rawX(step), rawY(step), 0);
+    }
+
+    private static float rawX(int step) {
+        return 200 + step * STEP_X;
+    }
+
+    private static float rawY(int step) {
+        return 300 + step * STEP_Y;
+    }
+}
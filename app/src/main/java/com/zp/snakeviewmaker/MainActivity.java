@@ -39,6 +39,8 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
 
         snakeViewMaker = new SnakeViewMaker(MainActivity.this);
         snakeViewMaker1 = new SnakeViewMaker(MainActivity.this);
+        snakeViewMaker.bindToLifecycle(this);
+        snakeViewMaker1.bindToLifecycle(this);
 
         String url = "https://moneycp.oss-cn-hangzhou.aliyuncs.com/image/9b4c3036ca5636e8961bb43a408ca53b.jpg";
         Glide.with(this).load(url).asBitmap()
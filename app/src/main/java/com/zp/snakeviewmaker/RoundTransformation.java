@@ -3,17 +3,20 @@ package com.zp.snakeviewmaker;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.RectF;
-import android.graphics.Shader;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
 
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
+import com.zp.snakeviewmaker.widget.CornerMaskCache;
 
 
 /**
+ * immutable, a single instance can be used from all of glide's decode threads.
+ * a transform copies the source into the pooled output bitmap and masks the rounded corners
+ * with the prerendered tiles of {@link CornerMaskCache}, nothing else is allocated
  * Created by zengp on 2017/10/20.
  */
 
@@ -26,10 +29,28 @@ public class RoundTransformation extends BitmapTransformation {
     public static final int CORNER_TYPE_BOTTOM_LEFT = 100;
     public static final int CORNER_TYPE_BOTTOM_RIGHT = 1000;
 
-    private float radius;  // dp
-    private int cornerType;
+    private static final int[] CORNER_TYPES = {CORNER_TYPE_TOP_LEFT, CORNER_TYPE_TOP_RIGHT,
+            CORNER_TYPE_BOTTOM_RIGHT, CORNER_TYPE_BOTTOM_LEFT};
+    private static final int[] CORNER_FLAGS = {CornerMaskCache.CORNER_TOP_LEFT,
+            CornerMaskCache.CORNER_TOP_RIGHT, CornerMaskCache.CORNER_BOTTOM_RIGHT,
+            CornerMaskCache.CORNER_BOTTOM_LEFT};
+
+    // glide transforms on worker threads: one canvas per thread, the paint never changes
+    private static final Paint SOURCE_PAINT = new Paint();
+    private static final ThreadLocal<Canvas> CANVAS = new ThreadLocal<Canvas>() {
+        @Override
+        protected Canvas initialValue() {
+            return new Canvas();
+        }
+    };
+
+    static {
+        SOURCE_PAINT.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    }
 
-    private int drawWidth, drawHeight;
+    private final float radius;  // px
+    private final int cornerType;
+    private final int corners; // CornerMaskCache flags
 
     public RoundTransformation(Context context) {
         this(context, 0, CORNER_TYPE_CIRCLE);
@@ -39,10 +60,15 @@ public class RoundTransformation extends BitmapTransformation {
         this(context, radius, CORNER_TYPE_ALL);
     }
 
+    /**
+     * @param radius     dp
+     * @param cornerType CORNER_TYPE_ALL, or the rounded corners combined with |
+     */
     public RoundTransformation(Context context, float radius, int cornerType) {
         super(context);
         this.radius = Resources.getSystem().getDisplayMetrics().density * radius;
         this.cornerType = cornerType;
+        this.corners = decodeCorners(cornerType);
     }
 
     @Override
@@ -59,153 +85,64 @@ public class RoundTransformation extends BitmapTransformation {
         // all the ori bitmaps loaded may have different size, in order to the clipped
         // the bitmaps have the same size and shape,we use the target ImageView's size
         // to create bitmaps
-        updateDrawBound(toTransform.getWidth(), toTransform.getHeight(), outWidth, outHeight);
+        int oriW = toTransform.getWidth();
+        int oriH = toTransform.getHeight();
+        int drawWidth, drawHeight;
+        float drawRadius;
+        if (cornerType == CORNER_TYPE_CIRCLE) {
+            drawWidth = drawHeight = outWidth <= 0 || outHeight <= 0 ? Math.min(oriW, oriH)
+                    : Math.min(Math.min(oriW, oriH), Math.min(outWidth, outHeight));
+            drawRadius = drawWidth / 2;
+        } else if (outWidth <= 0 || outHeight <= 0) {
+            // wrap_content
+            drawWidth = oriW;
+            drawHeight = oriH;
+            drawRadius = radius;
+        } else {
+            drawWidth = Math.min(oriW, outWidth);
+            drawHeight = Math.min(oriH, outHeight);
+            float radio = outWidth * 1f / outHeight;
+            float drawDimenRadio = drawWidth * 1f / drawHeight;
+            if (drawDimenRadio > radio) {
+                drawWidth = (int) (drawHeight * radio);
+            } else {
+                drawHeight = (int) (drawWidth / radio);
+            }
+            drawRadius = radius * drawWidth / outWidth;
+        }
+        drawWidth = Math.max(1, drawWidth);
+        drawHeight = Math.max(1, drawHeight);
 
         Bitmap bitmap = pool.get(drawWidth, drawHeight, Bitmap.Config.ARGB_8888);
         if (bitmap == null) {
             bitmap = Bitmap.createBitmap(drawWidth, drawHeight, Bitmap.Config.ARGB_8888);
         }
         bitmap.setHasAlpha(true);
-        Canvas canvas = new Canvas(bitmap);
-        Paint paint = new Paint();
-        paint.setAntiAlias(true);
-        paint.setShader(new BitmapShader(toTransform, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
-        drawRoundRect(canvas, paint);
+        Canvas canvas = CANVAS.get();
+        canvas.setBitmap(bitmap);
+        canvas.drawBitmap(toTransform, 0, 0, SOURCE_PAINT);
+        CornerMaskCache.getInstance().apply(canvas, drawWidth, drawHeight, drawRadius, corners);
+        canvas.setBitmap(null);
         return bitmap;
     }
 
-    private void updateDrawBound(int oriW, int oriH, int targetW, int targetH) {
-        if (targetH <= 0 || targetW <= 0) {
-            // wrap_content
-            if (cornerType == CORNER_TYPE_CIRCLE) {
-                drawWidth = drawHeight = Math.min(oriW, oriH);
-                radius = drawWidth / 2;
-            } else {
-                drawWidth = oriW;
-                drawHeight = oriH;
-            }
-
-        } else {
-            if (cornerType == CORNER_TYPE_CIRCLE) {
-                int oriMin = Math.min(oriH, oriW);
-                int targetMin = Math.min(targetW, targetH);
-                drawWidth = drawHeight = Math.min(oriMin, targetMin);
-                radius = drawWidth / 2;
-            } else {
-                drawWidth = Math.min(oriW, targetW);
-                drawHeight = Math.min(oriH, targetH);
-                float radio = targetW * 1f / targetH;
-                float drawDimenRadio = drawWidth * 1f / drawHeight;
-                if (drawDimenRadio > radio) {
-                    drawWidth = (int) (drawHeight * radio);
-                } else {
-                    drawHeight = (int) (drawWidth / radio);
+    /**
+     * the corner types are decimal digits combined with |, every combination is a distinct
+     * value but they can't be tested bit by bit. unknown values round all the corners
+     */
+    private static int decodeCorners(int cornerType) {
+        for (int mask = 1; mask < 16; mask++) {
+            int combined = 0;
+            int corners = 0;
+            for (int i = 0; i < 4; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    combined |= CORNER_TYPES[i];
+                    corners |= CORNER_FLAGS[i];
                 }
-                radius = radius * drawWidth / targetW;
             }
+            if (combined == cornerType)
+                return corners;
         }
-
-    }
-
-    private void drawRoundRect(Canvas canvas, Paint paint) {
-        float left = 0;
-        float top = 0;
-        float right = drawWidth;
-        float bottom = drawHeight;
-        float diameter = radius * 2;
-
-        switch (cornerType) {
-            case CORNER_TYPE_CIRCLE:
-            case CORNER_TYPE_ALL:
-            case CORNER_TYPE_TOP_LEFT | CORNER_TYPE_TOP_RIGHT | CORNER_TYPE_BOTTOM_LEFT | CORNER_TYPE_BOTTOM_RIGHT:
-                // all
-                canvas.drawRoundRect(new RectF(left, top, right, bottom), radius, radius, paint);
-                break;
-            case CORNER_TYPE_TOP_LEFT:
-                // top-left
-                canvas.drawRoundRect(new RectF(left, top, diameter, diameter), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top + radius, radius, bottom), paint);
-                canvas.drawRect(new RectF(left + radius, top, right, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_RIGHT:
-                // top-right
-                canvas.drawRoundRect(new RectF(right - diameter, top, right, diameter), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top, right - radius, bottom), paint);
-                canvas.drawRect(new RectF(right - radius, top + radius, right, bottom), paint);
-                break;
-            case CORNER_TYPE_BOTTOM_LEFT:
-                // bottom-left
-                canvas.drawRoundRect(new RectF(left, bottom - diameter, diameter, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top, right, bottom - radius), paint);
-                canvas.drawRect(new RectF(left + radius, bottom - radius, right, bottom), paint);
-                break;
-            case CORNER_TYPE_BOTTOM_RIGHT:
-                // bottom-right
-                canvas.drawRoundRect(new RectF(right - diameter, bottom - diameter, right, diameter), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top, right - radius, bottom), paint);
-                canvas.drawRect(new RectF(left, bottom - radius, right - radius, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_LEFT | CORNER_TYPE_TOP_RIGHT:
-                // top-left top-right
-                canvas.drawRoundRect(new RectF(left, top, right, diameter), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top + radius, right, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_LEFT | CORNER_TYPE_BOTTOM_LEFT:
-                // top-left bottom-left
-                canvas.drawRoundRect(new RectF(left, top, diameter, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left + radius, top, right, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_LEFT | CORNER_TYPE_BOTTOM_RIGHT:
-                // top-left bottom-right
-                canvas.drawRoundRect(new RectF(left, top, diameter, diameter), radius, radius, paint);
-                canvas.drawRoundRect(new RectF(right - radius, bottom - radius, right, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top + radius, right - radius, bottom), paint);
-                canvas.drawRect(new RectF(left + radius, top, right, bottom - radius), paint);
-                break;
-            case CORNER_TYPE_TOP_RIGHT | CORNER_TYPE_BOTTOM_LEFT:
-                // top-right bottom-left
-                canvas.drawRoundRect(new RectF(right - diameter, top, right, diameter), radius, radius, paint);
-                canvas.drawRoundRect(new RectF(left, bottom - diameter, diameter, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top, right - radius, bottom - radius), paint);
-                canvas.drawRect(new RectF(left + radius, top + radius, right, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_RIGHT | CORNER_TYPE_BOTTOM_RIGHT:
-                // top-right bottom-right
-                canvas.drawRoundRect(new RectF(right - diameter, top, right, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top, right - right, bottom), paint);
-                break;
-            case CORNER_TYPE_BOTTOM_LEFT | CORNER_TYPE_BOTTOM_RIGHT:
-                // bottom-right bottom-left
-                canvas.drawRoundRect(new RectF(left, bottom - diameter, right, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top, right, bottom - radius), paint);
-                break;
-            case CORNER_TYPE_TOP_LEFT | CORNER_TYPE_TOP_RIGHT | CORNER_TYPE_BOTTOM_LEFT:
-                // top-left top-right bottom-left
-                canvas.drawRoundRect(new RectF(left, top, right, diameter), radius, radius, paint);
-                canvas.drawRoundRect(new RectF(left, top, diameter, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left + radius, top + radius, right, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_LEFT | CORNER_TYPE_TOP_RIGHT | CORNER_TYPE_BOTTOM_RIGHT:
-                // top-left top-right bottom-right
-                canvas.drawRoundRect(new RectF(left, top, right, diameter), radius, radius, paint);
-                canvas.drawRoundRect(new RectF(right - diameter, top, right, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top + radius, right - radius, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_LEFT | CORNER_TYPE_BOTTOM_LEFT | CORNER_TYPE_BOTTOM_RIGHT:
-                // top-left bottom-left bottom-right
-                canvas.drawRoundRect(new RectF(left, top, diameter, bottom), radius, radius, paint);
-                canvas.drawRoundRect(new RectF(left, bottom - diameter, right, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top + radius, right - radius, bottom), paint);
-                break;
-            case CORNER_TYPE_TOP_RIGHT | CORNER_TYPE_BOTTOM_LEFT | CORNER_TYPE_BOTTOM_RIGHT:
-                // top-right bottom-left bottom-right
-                canvas.drawRoundRect(new RectF(left, bottom - diameter, right, bottom), radius, radius, paint);
-                canvas.drawRoundRect(new RectF(right - diameter, top, right, bottom), radius, radius, paint);
-                canvas.drawRect(new RectF(left, top, right - radius, bottom - radius), paint);
-                break;
-            default:
-                canvas.drawRoundRect(new RectF(left, top, right, bottom), radius, radius, paint);
-                break;
-        }
+        return CornerMaskCache.CORNER_ALL;
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * renders every segment of the snake as a full-size ImageView added to the parent.
+ * costs one view per segment, long snakes should use {@link SnakeView}
+ */
+
+class ChildViewRenderer implements SnakeRenderer {
+
+    private Context mContext;
+    private ViewGroup mParent;
+    private List<ImageView> mChildren = new ArrayList<>();
+
+    ChildViewRenderer(Context context) {
+        this.mContext = context;
+    }
+
+    @Override
+    public void attach(ViewGroup parent, Bitmap head, Bitmap trail, int width, int height,
+                       float[] alphas, float[] scales, float elevation) {
+        detach();
+        mParent = parent;
+        int count = alphas.length;
+        // the children of a previous attach are reused when the segment count is unchanged
+        if (mChildren.size() != count) {
+            mChildren.clear();
+            for (int i = 0; i < count; i++) {
+                ImageView child_i = new ImageView(mContext);
+                child_i.setScaleType(ImageView.ScaleType.CENTER_CROP);
+                mChildren.add(child_i);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            ImageView child_i = mChildren.get(i);
+            mParent.addView(child_i);
+            child_i.getLayoutParams().width = width;
+            child_i.getLayoutParams().height = height;
+            child_i.setImageBitmap(i == count - 1 ? head : trail);
+            child_i.setAlpha(alphas[i]);
+            child_i.setScaleX(scales[i]);
+            child_i.setScaleY(scales[i]);
+            if (i == count - 1 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                child_i.setElevation(elevation);
+            }
+        }
+    }
+
+    @Override
+    public void detach() {
+        if (null != mParent) {
+            for (int i = 0; i < mChildren.size(); i++) {
+                ImageView child = mChildren.get(i);
+                child.setImageDrawable(null);
+                mParent.removeView(child);
+            }
+            mParent = null;
+        }
+    }
+
+    @Override
+    public void setBitmap(Bitmap head, Bitmap trail) {
+        int count = mChildren.size();
+        for (int i = 0; i < count; i++) {
+            ImageView child = mChildren.get(i);
+            child.setImageBitmap(i == count - 1 ? head : trail);
+            child.invalidate();
+        }
+    }
+
+    @Override
+    public void invalidateBitmap() {
+        for (View child : mChildren)
+            child.invalidate();
+    }
+
+    @Override
+    public void setSegmentTranslation(int index, float x, float y) {
+        // translation is a render property, no layout pass is needed
+        View child = mChildren.get(index);
+        if (child.getTranslationX() != x)
+            child.setTranslationX(x);
+        if (child.getTranslationY() != y)
+            child.setTranslationY(y);
+    }
+
+    @Override
+    public void setHardwareCompositing(boolean enabled) {
+        int layerType = enabled ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE;
+        for (View child : mChildren) {
+            if (child.getLayerType() != layerType)
+                child.setLayerType(layerType, null);
+        }
+    }
+
+    @Override
+    public View getHeadView() {
+        return null == mParent || mChildren.isEmpty() ? null : mChildren.get(mChildren.size() - 1);
+    }
+
+    @Override
+    public void setVisibility(int visibility) {
+        for (View child : mChildren)
+            child.setVisibility(visibility);
+    }
+}
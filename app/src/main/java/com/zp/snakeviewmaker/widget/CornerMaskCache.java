@@ -0,0 +1,155 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a process-wide cache of anti-aliased corner masks. rounding the corners of an image is a
+ * DST_IN composite of one prerendered ALPHA_8 tile per rounded corner, the tile of the
+ * top-left corner mirrored for the others. a tile only depends on the radius, so it is shared
+ * by every size and corner combination. tiles are kept in LRU order within a byte budget.
+ * thread safe, evicted tiles are left to the garbage collector because another thread may
+ * still be drawing them
+ */
+
+public final class CornerMaskCache {
+
+    public static final int CORNER_TOP_LEFT = 1;
+    public static final int CORNER_TOP_RIGHT = 1 << 1;
+    public static final int CORNER_BOTTOM_RIGHT = 1 << 2;
+    public static final int CORNER_BOTTOM_LEFT = 1 << 3;
+    public static final int CORNER_ALL = CORNER_TOP_LEFT | CORNER_TOP_RIGHT
+            | CORNER_BOTTOM_RIGHT | CORNER_BOTTOM_LEFT;
+
+    private static final long DEFAULT_MAX_BYTES = 256 * 1024;
+
+    private static CornerMaskCache sInstance = null;
+
+    public static synchronized CornerMaskCache getInstance() {
+        if (null == sInstance)
+            sInstance = new CornerMaskCache();
+        return sInstance;
+    }
+
+    private static class Tile {
+        final float radius;
+        final Bitmap mask;
+
+        Tile(float radius, Bitmap mask) {
+            this.radius = radius;
+            this.mask = mask;
+        }
+    }
+
+    // only read while drawing, shared by all the threads
+    private final Paint mMaskPaint = new Paint();
+    private long mMaxBytes = DEFAULT_MAX_BYTES;
+    private long mBytes = 0;
+    // least recently used first, guarded by this
+    private final List<Tile> mTiles = new ArrayList<>();
+
+    private CornerMaskCache() {
+        mMaskPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.mMaxBytes = maxBytes;
+        trimToSize();
+    }
+
+    public synchronized void clear() {
+        mTiles.clear();
+        mBytes = 0;
+    }
+
+    /**
+     * round the corners of what has already been drawn into the canvas, in (0, 0, width, height)
+     *
+     * @param radius  clamped to half of the shorter side
+     * @param corners CORNER_ flags combined with |
+     */
+    public void apply(Canvas canvas, int width, int height, float radius, int corners) {
+        radius = Math.min(radius, Math.min(width, height) / 2f);
+        if (radius <= 0 || (corners & CORNER_ALL) == 0)
+            return;
+        Bitmap mask = getMask(radius);
+        if ((corners & CORNER_TOP_LEFT) != 0)
+            drawCorner(canvas, mask, 1, 1, width, height);
+        if ((corners & CORNER_TOP_RIGHT) != 0)
+            drawCorner(canvas, mask, -1, 1, width, height);
+        if ((corners & CORNER_BOTTOM_RIGHT) != 0)
+            drawCorner(canvas, mask, -1, -1, width, height);
+        if ((corners & CORNER_BOTTOM_LEFT) != 0)
+            drawCorner(canvas, mask, 1, -1, width, height);
+    }
+
+    private void drawCorner(Canvas canvas, Bitmap mask, int scaleX, int scaleY, int width, int height) {
+        canvas.save();
+        // mirror the top-left tile into the other corners
+        canvas.scale(scaleX, scaleY, width / 2f, height / 2f);
+        canvas.drawBitmap(mask, 0, 0, mMaskPaint);
+        canvas.restore();
+    }
+
+    private synchronized Bitmap getMask(float radius) {
+        for (int i = mTiles.size() - 1; i >= 0; i--) {
+            Tile tile = mTiles.get(i);
+            if (tile.radius == radius) {
+                if (i != mTiles.size() - 1) {
+                    mTiles.remove(i);
+                    mTiles.add(tile);
+                }
+                return tile.mask;
+            }
+        }
+        Tile tile = new Tile(radius, createMask(radius));
+        mTiles.add(tile);
+        mBytes += SnapshotCache.getByteCount(tile.mask);
+        trimToSize();
+        return tile.mask;
+    }
+
+    /**
+     * the top-left corner of a rounded rect, opaque inside
+     */
+    private static Bitmap createMask(float radius) {
+        int size = (int) Math.ceil(radius);
+        Bitmap mask = Bitmap.createBitmap(size, size, Bitmap.Config.ALPHA_8);
+        Path path = new Path();
+        path.addRoundRect(new RectF(0, 0, size * 2 + radius, size * 2 + radius),
+                radius, radius, Path.Direction.CW);
+        new Canvas(mask).drawPath(path, new Paint(Paint.ANTI_ALIAS_FLAG));
+        return mask;
+    }
+
+    private void trimToSize() {
+        // the newest tile is always kept, it is about to be drawn
+        while (mBytes > mMaxBytes && mTiles.size() > 1) {
+            mBytes -= SnapshotCache.getByteCount(mTiles.remove(0).mask);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * calls back once per display frame while running. uses Choreographer on jelly bean and above,
+ * falls back to a 16ms handler loop on older devices. must be used on the main thread
+ */
+
+class FrameTicker {
+
+    interface Callback {
+        /**
+         * @param frameTimeNanos the frame time, in the System.nanoTime() time base
+         * @return true to be called again on the next frame
+         */
+        boolean onFrame(long frameTimeNanos);
+    }
+
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    private final Callback mCallback;
+    private boolean mRunning = false;
+    private Object mFrameCallback = null; // Choreographer.FrameCallback, typed Object for api 14
+    private Runnable mFallbackRunnable = null;
+    private Handler mHandler = null;
+
+    FrameTicker(Callback callback) {
+        this.mCallback = callback;
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    void start() {
+        if (mRunning) return;
+        mRunning = true;
+        postFrame();
+    }
+
+    void stop() {
+        if (!mRunning) return;
+        mRunning = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            removeFrameCallback();
+        } else if (null != mHandler) {
+            mHandler.removeCallbacks(mFallbackRunnable);
+        }
+    }
+
+    private void dispatchFrame(long frameTimeNanos) {
+        if (!mRunning) return;
+        if (mCallback.onFrame(frameTimeNanos)) {
+            if (mRunning) postFrame();
+        } else {
+            mRunning = false;
+        }
+    }
+
+    private void postFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            if (null == mHandler) {
+                mHandler = new Handler(Looper.getMainLooper());
+                mFallbackRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatchFrame(System.nanoTime());
+                    }
+                };
+            }
+            mHandler.postDelayed(mFallbackRunnable, FALLBACK_FRAME_DELAY);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (null == mFrameCallback) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    dispatchFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        if (null != mFrameCallback) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * draws every segment into the overlay of the parent, api 18+. nothing is added to the parent,
+ * so attaching and detaching do not lay the view tree out again and any layout can be the
+ * parent. the overlay is drawn above all the children and takes no touch, the target receives it
+ */
+
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+class OverlayRenderer extends Drawable implements SnakeRenderer {
+
+    private ViewGroup mParent;
+    private final SegmentBatch mBatch = new SegmentBatch();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private boolean mVisible = true;
+    // the drawable covers the parent, its bounds are what the overlay invalidates
+    private final View.OnLayoutChangeListener mParentLayoutListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            setBounds(0, 0, right - left, bottom - top);
+        }
+    };
+
+    @Override
+    public void attach(ViewGroup parent, Bitmap head, Bitmap trail, int width, int height,
+                       float[] alphas, float[] scales, float elevation) {
+        detach();
+        mParent = parent;
+        mBatch.setSegments(width, height, alphas, scales);
+        mBatch.setBitmap(head, trail);
+        setBounds(0, 0, parent.getWidth(), parent.getHeight());
+        parent.addOnLayoutChangeListener(mParentLayoutListener);
+        parent.getOverlay().add(this);
+    }
+
+    @Override
+    public void detach() {
+        if (null != mParent) {
+            mParent.getOverlay().remove(this);
+            mParent.removeOnLayoutChangeListener(mParentLayoutListener);
+            mParent = null;
+        }
+    }
+
+    @Override
+    public void setBitmap(Bitmap head, Bitmap trail) {
+        mBatch.setBitmap(head, trail);
+        invalidateSelf();
+    }
+
+    @Override
+    public void invalidateBitmap() {
+        invalidateSelf();
+    }
+
+    @Override
+    public void setSegmentTranslation(int index, float x, float y) {
+        if (mBatch.setSegmentTranslation(index, x, y))
+            invalidateSelf();
+    }
+
+    @Override
+    public void setHardwareCompositing(boolean enabled) {
+    }
+
+    @Override
+    public View getHeadView() {
+        return null;
+    }
+
+    @Override
+    public void setVisibility(int visibility) {
+        mVisible = visibility == View.VISIBLE;
+        invalidateSelf();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (mVisible)
+            mBatch.draw(canvas, mPaint);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        // the alpha of every segment is set on attach
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
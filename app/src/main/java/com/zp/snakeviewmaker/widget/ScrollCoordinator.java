@@ -0,0 +1,83 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * one scroll listener per ViewTreeObserver for all the snakes attached under it.
+ * the view root dispatches scroll changes at most once per traversal, so every snake
+ * is updated at most once per frame no matter how many views scrolled
+ */
+
+class ScrollCoordinator implements ViewTreeObserver.OnScrollChangedListener {
+
+    // weak keys, a coordinator holds no reference to its observer. makers register only while
+    // their view is attached, so every snake in a window shares the observer of the window
+    private static final WeakHashMap<ViewTreeObserver, ScrollCoordinator> sCoordinators = new WeakHashMap<>();
+
+    private final List<SnakeViewMaker> mMakers = new ArrayList<>();
+
+    private ScrollCoordinator() {
+    }
+
+    /**
+     * @param view a view attached to its window
+     * @return the coordinator the maker has been added to, pass it to {@link #unregister}
+     */
+    static ScrollCoordinator register(View view, SnakeViewMaker maker) {
+        ViewTreeObserver observer = view.getViewTreeObserver();
+        ScrollCoordinator coordinator = sCoordinators.get(observer);
+        if (null == coordinator) {
+            coordinator = new ScrollCoordinator();
+            sCoordinators.put(observer, coordinator);
+            observer.addOnScrollChangedListener(coordinator);
+        }
+        if (!coordinator.mMakers.contains(maker))
+            coordinator.mMakers.add(maker);
+        return coordinator;
+    }
+
+    /**
+     * @param view the view the maker has been registered with
+     */
+    void unregister(View view, SnakeViewMaker maker) {
+        mMakers.remove(maker);
+        if (!mMakers.isEmpty())
+            return;
+        ViewTreeObserver observer = view.getViewTreeObserver();
+        if (observer.isAlive())
+            observer.removeOnScrollChangedListener(this);
+        Iterator<ScrollCoordinator> iterator = sCoordinators.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == this)
+                iterator.remove();
+        }
+    }
+
+    @Override
+    public void onScrollChanged() {
+        for (int i = 0; i < mMakers.size(); i++)
+            mMakers.get(i).onScrollChanged();
+    }
+}
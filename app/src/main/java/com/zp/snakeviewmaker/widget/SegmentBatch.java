@@ -0,0 +1,120 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * the segments of one snake, drawn from one shared bitmap by a view which draws whole snakes in
+ * its onDraw. position, alpha and scale of each segment live in primitive arrays, segments
+ * outside the canvas clip are skipped
+ */
+
+class SegmentBatch {
+
+    private Bitmap mBitmap;
+    private Bitmap mTrailBitmap;
+    private int mSegmentWidth = 0;
+    private int mSegmentHeight = 0;
+
+    private int mSegmentCount = 0;
+    private float[] mSegmentX = new float[0];
+    private float[] mSegmentY = new float[0];
+    private float[] mSegmentAlpha = new float[0];
+    private float[] mSegmentScale = new float[0];
+
+    private final Rect mSrcRect = new Rect();
+    private final Rect mTrailSrcRect = new Rect();
+    private final RectF mDstRect = new RectF();
+
+    void setSegments(int width, int height, float[] alphas, float[] scales) {
+        mSegmentWidth = width;
+        mSegmentHeight = height;
+        if (mSegmentCount != alphas.length) {
+            mSegmentCount = alphas.length;
+            mSegmentX = new float[mSegmentCount];
+            mSegmentY = new float[mSegmentCount];
+        }
+        mSegmentAlpha = alphas.clone();
+        mSegmentScale = scales.clone();
+    }
+
+    void setBitmap(Bitmap head, Bitmap trail) {
+        mBitmap = head;
+        mTrailBitmap = trail;
+        computeCenterCrop(head, mSrcRect);
+        computeCenterCrop(trail, mTrailSrcRect);
+    }
+
+    private void computeCenterCrop(Bitmap bitmap, Rect out) {
+        if (null == bitmap || mSegmentWidth <= 0 || mSegmentHeight <= 0)
+            return;
+        // center crop the bitmap into the segment bound, the same as the ImageView children do
+        int bw = bitmap.getWidth();
+        int bh = bitmap.getHeight();
+        if (bw * mSegmentHeight > mSegmentWidth * bh) {
+            int w = bh * mSegmentWidth / mSegmentHeight;
+            out.set((bw - w) / 2, 0, (bw + w) / 2, bh);
+        } else {
+            int h = bw * mSegmentHeight / mSegmentWidth;
+            out.set(0, (bh - h) / 2, bw, (bh + h) / 2);
+        }
+    }
+
+    /**
+     * @return false if the segment is already there
+     */
+    boolean setSegmentTranslation(int index, float x, float y) {
+        if (mSegmentX[index] == x && mSegmentY[index] == y)
+            return false;
+        mSegmentX[index] = x;
+        mSegmentY[index] = y;
+        return true;
+    }
+
+    boolean isOnHead(float x, float y) {
+        if (mSegmentCount == 0)
+            return false;
+        float left = mSegmentX[mSegmentCount - 1];
+        float top = mSegmentY[mSegmentCount - 1];
+        return x >= left && x < left + mSegmentWidth && y >= top && y < top + mSegmentHeight;
+    }
+
+    void draw(Canvas canvas, Paint paint) {
+        if (null == mBitmap || mBitmap.isRecycled()
+                || null == mTrailBitmap || mTrailBitmap.isRecycled())
+            return;
+        for (int i = 0; i < mSegmentCount; i++) {
+            // scaled around the segment center, the same pivot as a view
+            float insetX = mSegmentWidth * (1 - mSegmentScale[i]) / 2;
+            float insetY = mSegmentHeight * (1 - mSegmentScale[i]) / 2;
+            mDstRect.set(mSegmentX[i] + insetX, mSegmentY[i] + insetY,
+                    mSegmentX[i] + mSegmentWidth - insetX, mSegmentY[i] + mSegmentHeight - insetY);
+            if (canvas.quickReject(mDstRect, Canvas.EdgeType.AA))
+                continue;
+            paint.setAlpha((int) (mSegmentAlpha[i] * 255 + 0.5f));
+            if (i == mSegmentCount - 1)
+                canvas.drawBitmap(mBitmap, mSrcRect, mDstRect, paint);
+            else
+                canvas.drawBitmap(mTrailBitmap, mTrailSrcRect, mDstRect, paint);
+        }
+    }
+}
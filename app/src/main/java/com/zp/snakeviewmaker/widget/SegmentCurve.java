@@ -0,0 +1,48 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * a per-segment value such as alpha or scale. it is evaluated once per segment when the snake
+ * is attached, never per frame
+ */
+
+public interface SegmentCurve {
+
+    /**
+     * @param index segment index, 0 is the tail and (count - 1) is the head
+     * @param count number of segments
+     */
+    float valueAt(int index, int count);
+
+    /**
+     * the original alpha: the head is opaque, the trail fades from 0.5 to the tail
+     */
+    SegmentCurve DEFAULT_ALPHA = new SegmentCurve() {
+        @Override
+        public float valueAt(int index, int count) {
+            return index == count - 1 ? 1f : 0.5f / count * (index + 1);
+        }
+    };
+
+    SegmentCurve DEFAULT_SCALE = new SegmentCurve() {
+        @Override
+        public float valueAt(int index, int count) {
+            return 1f;
+        }
+    };
+}
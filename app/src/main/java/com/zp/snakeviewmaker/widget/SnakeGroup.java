@@ -0,0 +1,164 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * many snakes in one layout, e.g. a board of draggable items. the snakes of a group
+ * are drawn by one view in one onDraw pass, share one shield and one touch listener so that
+ * several fingers drag several snakes at once, and are advanced by one frame callback which only
+ * visits the snakes in motion. a snake at rest costs nothing per frame and the segments out of
+ * sight are not drawn, so a screen with dozens of snakes costs about as much per frame as the
+ * snakes being dragged
+ * <p>
+ * the head view is shared by the whole group, setClickable and setEnabled of one snake apply
+ * to all of them
+ */
+
+public class SnakeGroup {
+
+    private final Context mContext;
+    private final ViewGroup mAttachRoot;
+    private final SnakeGroupView mView;
+    private final Map<View, SnakeViewMaker> mSnakes = new HashMap<>();
+
+    // the snakes in motion, the only ones visited on a frame
+    private SnakeViewMaker[] mMoving = new SnakeViewMaker[8];
+    private int mMovingCount = 0;
+    private final FrameTicker mFrameTicker = new FrameTicker(new FrameTicker.Callback() {
+        @Override
+        public boolean onFrame(long frameTimeNanos) {
+            return updateMovingSnakes(frameTimeNanos);
+        }
+    });
+
+    /**
+     * @param attachRoot the layout the snakes are drawn in, usually a FrameLayout above the targets
+     */
+    public SnakeGroup(Context context, ViewGroup attachRoot) {
+        this.mContext = context;
+        this.mAttachRoot = attachRoot;
+        this.mView = new SnakeGroupView(context);
+    }
+
+    /**
+     * make the target a snake of this group, not attached yet. configure the returned maker and
+     * then {@link #attach} the target
+     */
+    public SnakeViewMaker add(View target) {
+        SnakeViewMaker snake = mSnakes.get(target);
+        if (null == snake) {
+            snake = new SnakeViewMaker(mContext);
+            snake.setGroup(this);
+            snake.addTargetView(target);
+            mSnakes.put(target, snake);
+        }
+        return snake;
+    }
+
+    /**
+     * attach the snake of the target, added first if it is not in the group. attaching it again
+     * applies the settings changed since
+     */
+    public SnakeViewMaker attach(View target) {
+        SnakeViewMaker snake = add(target);
+        snake.attachToRootLayout(mAttachRoot);
+        return snake;
+    }
+
+    public void remove(View target) {
+        SnakeViewMaker snake = mSnakes.remove(target);
+        if (null != snake)
+            snake.release();
+    }
+
+    /**
+     * release every snake, the group can be used again afterwards
+     */
+    public void clear() {
+        List<SnakeViewMaker> snakes = new ArrayList<>(mSnakes.values());
+        mSnakes.clear();
+        for (int i = 0; i < snakes.size(); i++)
+            snakes.get(i).release();
+        mFrameTicker.stop();
+        mMovingCount = 0;
+    }
+
+    public int size() {
+        return mSnakes.size();
+    }
+
+    SnakeRenderer newRenderer() {
+        return mView.newSlice();
+    }
+
+    /**
+     * the snake is moved on every frame until it comes to rest or {@link #stopFrames} is called
+     */
+    void startFrames(SnakeViewMaker snake) {
+        if (indexOfMoving(snake) < 0) {
+            if (mMovingCount == mMoving.length) {
+                SnakeViewMaker[] moving = new SnakeViewMaker[mMovingCount * 2];
+                System.arraycopy(mMoving, 0, moving, 0, mMovingCount);
+                mMoving = moving;
+            }
+            mMoving[mMovingCount++] = snake;
+        }
+        mFrameTicker.start();
+    }
+
+    void stopFrames(SnakeViewMaker snake) {
+        int index = indexOfMoving(snake);
+        // only cleared, the next frame compacts the list
+        if (index >= 0)
+            mMoving[index] = null;
+    }
+
+    boolean isMoving(SnakeViewMaker snake) {
+        return indexOfMoving(snake) >= 0;
+    }
+
+    private int indexOfMoving(SnakeViewMaker snake) {
+        for (int i = 0; i < mMovingCount; i++) {
+            if (mMoving[i] == snake)
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean updateMovingSnakes(long frameTimeNanos) {
+        int count = 0;
+        for (int i = 0; i < mMovingCount; i++) {
+            SnakeViewMaker snake = mMoving[i];
+            // the snakes at rest leave the list
+            if (null != snake && snake.updateSegmentsOnFrame(frameTimeNanos) && mMoving[i] == snake)
+                mMoving[count++] = snake;
+        }
+        for (int i = count; i < mMovingCount; i++)
+            mMoving[i] = null;
+        mMovingCount = count;
+        return count > 0;
+    }
+}
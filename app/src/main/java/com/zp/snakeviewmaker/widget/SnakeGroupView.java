@@ -0,0 +1,145 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Build;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * one view which draws every snake of a {@link SnakeGroup} in one onDraw pass. each snake renders
+ * through a {@link Slice}, the snakes are drawn in the order they were attached. the view fills
+ * the parent, only touches that land on a head are consumed. it is added with the first slice
+ * and removed with the last one
+ */
+
+class SnakeGroupView extends View {
+
+    private final List<Slice> mSlices = new ArrayList<>();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    SnakeGroupView(Context context) {
+        super(context);
+        setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+    }
+
+    Slice newSlice() {
+        return new Slice();
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN && !isOnHead(event.getX(), event.getY())) {
+            // not on a head, let the views below handle it
+            return false;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
+    private boolean isOnHead(float x, float y) {
+        for (int i = mSlices.size() - 1; i >= 0; i--) {
+            Slice slice = mSlices.get(i);
+            if (slice.mVisible && slice.mBatch.isOnHead(x, y))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        for (int i = 0; i < mSlices.size(); i++) {
+            Slice slice = mSlices.get(i);
+            if (slice.mVisible)
+                slice.mBatch.draw(canvas, mPaint);
+        }
+    }
+
+    /**
+     * the renderer of one snake, every change only invalidates the shared view.
+     * the head view of every slice is the shared view
+     */
+    class Slice implements SnakeRenderer {
+
+        private final SegmentBatch mBatch = new SegmentBatch();
+        private boolean mVisible = true;
+
+        @Override
+        public void attach(ViewGroup parent, Bitmap head, Bitmap trail, int width, int height,
+                           float[] alphas, float[] scales, float elevation) {
+            detach();
+            mBatch.setSegments(width, height, alphas, scales);
+            mBatch.setBitmap(head, trail);
+            mSlices.add(this);
+            if (null == getParent())
+                parent.addView(SnakeGroupView.this);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && getElevation() < elevation) {
+                setElevation(elevation);
+            }
+            invalidate();
+        }
+
+        @Override
+        public void detach() {
+            if (!mSlices.remove(this))
+                return;
+            invalidate();
+            if (mSlices.isEmpty() && null != getParent())
+                ((ViewGroup) getParent()).removeView(SnakeGroupView.this);
+        }
+
+        @Override
+        public void setBitmap(Bitmap head, Bitmap trail) {
+            mBatch.setBitmap(head, trail);
+            invalidate();
+        }
+
+        @Override
+        public void invalidateBitmap() {
+            invalidate();
+        }
+
+        @Override
+        public void setSegmentTranslation(int index, float x, float y) {
+            if (mBatch.setSegmentTranslation(index, x, y))
+                invalidate();
+        }
+
+        @Override
+        public void setHardwareCompositing(boolean enabled) {
+        }
+
+        @Override
+        public View getHeadView() {
+            return mSlices.contains(this) ? SnakeGroupView.this : null;
+        }
+
+        @Override
+        public void setVisibility(int visibility) {
+            mVisible = visibility == View.VISIBLE;
+            invalidate();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * the math and the touch constants of the snake which don't need a device, shared by
+ * SnakeViewMaker and the jvm replay. plain java and allocation free
+ */
+
+final class SnakeMath {
+
+    // the tension of android.view.animation.OvershootInterpolator()
+    static final float DEFAULT_OVERSHOOT_TENSION = 2.0f;
+
+    // how many ms each segment lags behind the next one, unless set
+    static final int DEFAULT_SEGMENT_DELAY = 100;
+
+    // a move only drags the snake this long after the finger went down, a shorter touch is a click
+    static final int DRAG_START_DELAY = 150;
+    static final float MAX_RELEASE_VELOCITY = 1000; // pixels per second
+
+    private SnakeMath() {
+    }
+
+    /**
+     * the curve of {@link android.view.animation.OvershootInterpolator}
+     *
+     * @param t input in [0, 1]
+     */
+    static float overshoot(float tension, float t) {
+        t -= 1.0f;
+        return t * t * ((tension + 1) * t + tension) + 1.0f;
+    }
+}
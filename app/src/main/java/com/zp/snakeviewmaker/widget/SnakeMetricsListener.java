@@ -0,0 +1,59 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * performance figures of a snake, see {@link SnakeViewMaker#setMetricsListener}.
+ * all the callbacks come on the main thread, in the middle of a frame: hand the values over
+ * to something else and return quickly
+ */
+
+public interface SnakeMetricsListener {
+
+    /**
+     * once for every ACTION_MOVE which moves the snake
+     *
+     * @param latencyMs from the event time to the frame which draws it
+     */
+    void onInputLatency(long latencyMs);
+
+    /**
+     * once per frame while the segments are updated
+     *
+     * @param updateNanos time spent in the motion model and the renderer on this frame
+     * @param segments    number of segments updated
+     */
+    void onFrameUpdate(long updateNanos, int segments);
+
+    /**
+     * a drag and its release are over
+     *
+     * @param frames       frames seen from the first move to the end of the release
+     * @param missedFrames display frames which came and went without a snake frame
+     */
+    void onMotionEnd(int frames, int missedFrames);
+
+    /**
+     * the target snapshot has been built or redrawn
+     *
+     * @param buildNanos    time spent drawing the snapshot and its trail copy
+     * @param bytes         bitmap memory held by this snake
+     * @param liveSnapshots snapshots in use by any snake in the process
+     * @param bitmaps       snapshot bitmaps held by the process-wide cache, in use, idle or pooled
+     */
+    void onSnapshot(long buildNanos, long bytes, int liveSnapshots, int bitmaps);
+}
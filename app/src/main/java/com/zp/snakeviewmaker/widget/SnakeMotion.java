@@ -0,0 +1,58 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * the motion model which decides where every segment of the snake is on each frame.
+ * segment 0 is the tail, segment (count - 1) is the head following the finger.
+ * times are in milliseconds, positions in pixels of the attach layout.
+ * implementations are plain java so that they can be tested and benchmarked on the jvm
+ */
+
+public interface SnakeMotion {
+
+    /**
+     * put every segment at rest at (x, y), drop any motion in progress
+     */
+    void reset(int count, float x, float y);
+
+    /**
+     * the finger went down on the head, the snake rests at (restX, restY)
+     */
+    void startDrag(long time, float restX, float restY);
+
+    /**
+     * a finger position, in time order
+     */
+    void addSample(long time, float x, float y);
+
+    /**
+     * the finger is up, the snake goes back to (restX, restY)
+     *
+     * @param velocityX finger velocity at release, pixels per second
+     * @param velocityY finger velocity at release, pixels per second
+     */
+    void release(long time, float restX, float restY, float velocityX, float velocityY);
+
+    /**
+     * advance the model to the given frame time, the release included
+     *
+     * @return n, the positions of segments [0, n) have been written to outX and outY.
+     * 0 once the snake has nothing left to move, which ends the release
+     */
+    int update(long time, float[] outX, float[] outY);
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.content.Context;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * makes a view of every RecyclerView item a snake. snakes are only built while their item is
+ * attached to the window, and the SnakeViewMakers, with their segment views, are pooled and
+ * reused by the next item that scrolls in. snapshots of recycled item views are reused by
+ * the {@link SnapshotCache}
+ * <p>
+ * call {@link #bind} from onBindViewHolder, the rest is driven by the RecyclerView
+ */
+
+public class SnakeRecyclerBinder {
+
+    private static final int DEFAULT_MAX_POOL_SIZE = 8;
+
+    private final Context mContext;
+    private final ViewGroup mAttachRoot;
+    private RecyclerView mRecyclerView = null;
+    private int mRenderMode = SnakeViewMaker.RENDER_MODE_CHILD_VIEWS;
+    private int mMaxPoolSize = DEFAULT_MAX_POOL_SIZE;
+
+    private final Map<RecyclerView.ViewHolder, View> mTargets = new HashMap<>();
+    private final Map<RecyclerView.ViewHolder, SnakeViewMaker> mSnakes = new HashMap<>();
+    private final List<SnakeViewMaker> mPool = new ArrayList<>();
+    private final List<RecyclerView.ViewHolder> mPendingAttach = new ArrayList<>();
+    private boolean mAttachPosted = false;
+
+    private final RecyclerView.OnChildAttachStateChangeListener mAttachStateListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                    RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(view);
+                    if (mTargets.containsKey(holder))
+                        scheduleAttach(holder);
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                    RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(view);
+                    mPendingAttach.remove(holder);
+                    releaseSnake(holder);
+                }
+            };
+
+    private final Runnable mAttachRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mAttachPosted = false;
+            for (int i = 0; i < mPendingAttach.size(); i++)
+                attachSnake(mPendingAttach.get(i));
+            mPendingAttach.clear();
+        }
+    };
+
+    /**
+     * @param attachRoot the layout the snakes are added to, usually a FrameLayout above the RecyclerView
+     */
+    public SnakeRecyclerBinder(Context context, ViewGroup attachRoot) {
+        this.mContext = context;
+        this.mAttachRoot = attachRoot;
+    }
+
+    public SnakeRecyclerBinder setRenderMode(int renderMode) {
+        this.mRenderMode = renderMode;
+        return this;
+    }
+
+    /**
+     * @param maxPoolSize how many idle SnakeViewMakers are kept for reuse
+     */
+    public SnakeRecyclerBinder setMaxPoolSize(int maxPoolSize) {
+        this.mMaxPoolSize = maxPoolSize;
+        while (mPool.size() > maxPoolSize)
+            mPool.remove(mPool.size() - 1).release();
+        return this;
+    }
+
+    public void attachToRecyclerView(RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) return;
+        if (null != mRecyclerView)
+            detachFromRecyclerView();
+        mRecyclerView = recyclerView;
+        mRecyclerView.addOnChildAttachStateChangeListener(mAttachStateListener);
+    }
+
+    public void detachFromRecyclerView() {
+        if (null == mRecyclerView) return;
+        mRecyclerView.removeOnChildAttachStateChangeListener(mAttachStateListener);
+        mRecyclerView.removeCallbacks(mAttachRunnable);
+        mAttachPosted = false;
+        mPendingAttach.clear();
+        for (RecyclerView.ViewHolder holder : new ArrayList<>(mSnakes.keySet()))
+            releaseSnake(holder);
+        mTargets.clear();
+        mRecyclerView = null;
+    }
+
+    /**
+     * make the target a snake, call it from onBindViewHolder. the snake is built once the item
+     * is laid out on the screen
+     *
+     * @param target a view inside holder.itemView
+     */
+    public void bind(RecyclerView.ViewHolder holder, View target) {
+        mTargets.put(holder, target);
+        // rebound while on the screen, e.g. notifyItemChanged
+        if (ViewCompat.isAttachedToWindow(holder.itemView))
+            scheduleAttach(holder);
+    }
+
+    public void unbind(RecyclerView.ViewHolder holder) {
+        mPendingAttach.remove(holder);
+        releaseSnake(holder);
+        mTargets.remove(holder);
+    }
+
+    /**
+     * @return the snake of the holder, null if it is not on the screen
+     */
+    public SnakeViewMaker getSnake(RecyclerView.ViewHolder holder) {
+        return mSnakes.get(holder);
+    }
+
+    private void scheduleAttach(RecyclerView.ViewHolder holder) {
+        if (null == mRecyclerView) return;
+        if (!mPendingAttach.contains(holder))
+            mPendingAttach.add(holder);
+        // children are attached before they are measured, wait for the layout pass to finish
+        if (!mAttachPosted) {
+            mAttachPosted = true;
+            mRecyclerView.post(mAttachRunnable);
+        }
+    }
+
+    private void attachSnake(RecyclerView.ViewHolder holder) {
+        View target = mTargets.get(holder);
+        if (null == target || !ViewCompat.isAttachedToWindow(holder.itemView))
+            return;
+        SnakeViewMaker snake = mSnakes.get(holder);
+        if (null == snake) {
+            snake = mPool.isEmpty() ? new SnakeViewMaker(mContext) : mPool.remove(mPool.size() - 1);
+            mSnakes.put(holder, snake);
+        }
+        snake.setRenderMode(mRenderMode)
+                .addTargetView(target)
+                .attachToRootLayout(mAttachRoot);
+    }
+
+    private void releaseSnake(RecyclerView.ViewHolder holder) {
+        SnakeViewMaker snake = mSnakes.remove(holder);
+        if (null == snake) return;
+        if (mPool.size() < mMaxPoolSize) {
+            snake.detachSnake();
+            mPool.add(snake);
+        } else {
+            snake.release();
+        }
+    }
+}
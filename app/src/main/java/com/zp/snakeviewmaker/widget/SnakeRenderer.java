@@ -0,0 +1,62 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * the backend which puts the snake segments on the screen.
+ * segment 0 is the tail, segment (count - 1) is the head which receives the touch
+ */
+
+interface SnakeRenderer {
+
+    /**
+     * @param head  the full quality snapshot drawn by the head segment
+     * @param trail the snapshot drawn by the trailing segments, may be a reduced copy of head
+     */
+    void attach(ViewGroup parent, Bitmap head, Bitmap trail, int width, int height,
+                float[] alphas, float[] scales, float elevation);
+
+    void detach();
+
+    void setBitmap(Bitmap head, Bitmap trail);
+
+    /**
+     * the content of the current bitmaps has been redrawn in place
+     */
+    void invalidateBitmap();
+
+    void setSegmentTranslation(int index, float x, float y);
+
+    /**
+     * while enabled the segment content is kept in gpu memory and only the render
+     * properties (translation, alpha) change from frame to frame. a renderer which draws
+     * every segment in one pass ignores it, see {@link SnakeView}
+     */
+    void setHardwareCompositing(boolean enabled);
+
+    /**
+     * @return the view which receives the touch of the head, null if the renderer takes no touch
+     * and the target receives it instead
+     */
+    View getHeadView();
+
+    void setVisibility(int visibility);
+}
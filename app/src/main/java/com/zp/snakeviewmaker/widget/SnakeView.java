@@ -0,0 +1,107 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Build;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * a single view which draws every segment of the snake from one shared bitmap in one onDraw pass.
+ * the view fills the parent, only touches that land on the head segment are consumed
+ */
+
+class SnakeView extends View implements SnakeRenderer {
+
+    private ViewGroup mParent;
+    private final SegmentBatch mBatch = new SegmentBatch();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    SnakeView(Context context) {
+        super(context);
+    }
+
+    @Override
+    public void attach(ViewGroup parent, Bitmap head, Bitmap trail, int width, int height,
+                       float[] alphas, float[] scales, float elevation) {
+        detach();
+        mParent = parent;
+        mBatch.setSegments(width, height, alphas, scales);
+        setBitmap(head, trail);
+        setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setElevation(elevation);
+        }
+        mParent.addView(this);
+    }
+
+    @Override
+    public void detach() {
+        if (null != mParent) {
+            mParent.removeView(this);
+            mParent = null;
+        }
+    }
+
+    @Override
+    public void setBitmap(Bitmap head, Bitmap trail) {
+        mBatch.setBitmap(head, trail);
+        invalidate();
+    }
+
+    @Override
+    public void invalidateBitmap() {
+        invalidate();
+    }
+
+    @Override
+    public void setSegmentTranslation(int index, float x, float y) {
+        if (mBatch.setSegmentTranslation(index, x, y))
+            invalidate();
+    }
+
+    @Override
+    public void setHardwareCompositing(boolean enabled) {
+        // nothing to do: all the segments live in one display list which references the same
+        // bitmap texture, a layer over the whole view would be redrawn on every frame anyway
+    }
+
+    @Override
+    public View getHeadView() {
+        return null == mParent ? null : this;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN && !mBatch.isOnHead(event.getX(), event.getY())) {
+            // not on the head, let the views below handle it
+            return false;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        mBatch.draw(canvas, mPaint);
+    }
+}
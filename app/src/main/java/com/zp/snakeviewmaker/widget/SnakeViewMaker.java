@@ -16,14 +16,21 @@
 
 package com.zp.snakeviewmaker.widget;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
 import android.annotation.TargetApi;
 import android.app.Activity;
+import android.arch.lifecycle.Lifecycle;
+import android.arch.lifecycle.LifecycleObserver;
+import android.arch.lifecycle.LifecycleOwner;
+import android.arch.lifecycle.OnLifecycleEvent;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
@@ -31,15 +38,14 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
-import android.view.animation.Interpolator;
-import android.view.animation.OvershootInterpolator;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 
+import com.zp.snakeviewmaker.BuildConfig;
+
 import java.util.ArrayList;
 import java.util.List;
 
-
 /**
  * a view wrapper that makes the wrapped view move like a snake when touched and dragged
  * Created by zengp on 2017/11/6.
@@ -47,36 +53,496 @@ import java.util.List;
 
 public class SnakeViewMaker implements View.OnTouchListener {
 
+    // every segment is a full-size ImageView added to the root layout
+    public static final int RENDER_MODE_CHILD_VIEWS = 0;
+    // one view draws every segment in a single onDraw pass
+    public static final int RENDER_MODE_SINGLE_VIEW = 1;
+    // drawn in the overlay of the attach layout, nothing is added to it and any layout works.
+    // the target stays in place, transparent, and takes the touch with this maker as its
+    // OnTouchListener, which replaces any listener set on it before and is cleared on detach.
+    // api 18+, RENDER_MODE_SINGLE_VIEW below
+    public static final int RENDER_MODE_OVERLAY = 2;
+
+    private static int sStatusBarHeightResId = 0;
+
     private Context mContext;
     private View mTargetView;
     private ViewGroup mAttachViewGroup;
 
     private int mChildCount = 5;
-    private List<ImageView> mChildren = new ArrayList<>();
+    private SegmentCurve mAlphaCurve = SegmentCurve.DEFAULT_ALPHA;
+    private SegmentCurve mScaleCurve = SegmentCurve.DEFAULT_SCALE;
+    private int mRenderMode = RENDER_MODE_CHILD_VIEWS;
+    private boolean mHardwareCompositing = false;
+    private boolean mCompositingActive = false;
+    private SnakeRenderer mRenderer = null;
+    private SnakeRenderer mRecycledRenderer = null; // kept after detach, reused by the next attach
+    private View mHeadView = null;
+    private final View.OnClickListener mHeadClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            mTargetView.performClick();
+        }
+    };
     private View mShieldView = null;  // a shield to block the touch, click, or scroll event when snake is going
     private boolean mShieldEnabled = true;
 
     private int mTargetWidth = 0;
     private int mTargetHeight = 0;
     private Bitmap mTargetBitmap = null;
+    // reduced copy of mTargetBitmap for the trailing segments, null when they share mTargetBitmap
+    private Bitmap mTrailBitmap = null;
+    private float mTrailScale = 1f;
+    private Bitmap.Config mTrailConfig = Bitmap.Config.ARGB_8888;
+    private Canvas mTrailCanvas = null;
+    private Paint mTrailPaint = null;
     private int[] mTargetLocation = new int[]{0, 0};
     private int mContentTopInWindow = 0; // statusbar height + titlebar height
+    private boolean mContentTopValid = false;
+    private ScrollCoordinator mScrollCoordinator = null;
+    private boolean mSnakeOnScreen = true;
+    private final Rect mVisibleRect = new Rect();
+    private ViewGroup mContentView = null;
+    private final View.OnLayoutChangeListener mContentLayoutListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            mContentTopValid = false;
+        }
+    };
 
 
-    private final int mDragDelay = 100;
-    private final float mMaxVelocity = 1000;
+    private int mDragDelay = SnakeMath.DEFAULT_SEGMENT_DELAY;
     private VelocityTracker mVelocityTracker = null;
+    // the finger which drags the snake, another finger on the head takes over when it goes up
+    private int mActivePointerId = MotionEvent.INVALID_POINTER_ID;
+    private long mTouchDownTime = 0;
+    // several fingers drag several snakes, see setMultiTouchEnabled
+    private boolean mMultiTouch = false;
+    private TouchCoordinator mTouchCoordinator = null;
+    private boolean mShieldRaised = false;
+    // a snake of a group is drawn, touched and moved on frames by the group
+    private SnakeGroup mGroup = null;
+    // overlay mode: the target is hidden by alpha and takes the touch, the shield is an interceptor
+    private boolean mTouchOnTarget = false;
+    private boolean mTargetHidden = false;
+    private float mTargetAlpha = 1f;
+    private final TouchInterceptor mTouchInterceptor = new TouchInterceptor();
+
+    // the motion model decides the segment positions once per frame
+    private SnakeMotion mMotion = new TrailMotion(mDragDelay);
+    private float[] mSegmentX = new float[0];
+    private float[] mSegmentY = new float[0];
+    private boolean mReleasing = false;
+    private final Runnable mReleaseEndAction = new Runnable() {
+        @Override
+        public void run() {
+            // when every segment is back, release the shield view
+            mReleasing = false;
+            setShieldRaised(false);
+            setCompositingActive(false);
+            if (null != mMetricsListener)
+                reportMotionEnd();
+        }
+    };
+    // dirty region of the target waiting for the next frame, in target coordinates
+    private final Rect mDirtyRect = new Rect();
+    private final FrameTicker mRefreshTicker = new FrameTicker(new FrameTicker.Callback() {
+        @Override
+        public boolean onFrame(long frameTimeNanos) {
+            refreshDirtyRegion();
+            return false;
+        }
+    });
+    private final FrameTicker mFrameTicker = new FrameTicker(new FrameTicker.Callback() {
+        @Override
+        public boolean onFrame(long frameTimeNanos) {
+            return updateSegmentsOnFrame(frameTimeNanos);
+        }
+    });
+
+    // metrics, only collected while a listener is set
+    private SnakeMetricsListener mMetricsListener = null;
+    private long mFrameIntervalNanos = 0;
+    private final long[] mPendingInputTimes = new long[8]; // moves waiting for a frame
+    private int mPendingInputCount = 0;
+    private long mLastFrameTimeNanos = -1;
+    private int mMotionFrames = 0;
+    private int mMissedFrames = 0;
+    private TouchTrace mTouchRecorder = null;
+
+    // lifecycle binding: the snake is torn down on stop and built again on start
+    private Lifecycle mLifecycle = null;
+    private final LifecycleObserver mLifecycleObserver = new LifecycleBinding();
+    private boolean mReleaseOnTargetDetached = false;
+    private boolean mSuspended = false;
+    // a snake attached while its target is not in a window registers for scrolling once it is
+    private boolean mScrollPending = false;
+    private final View.OnAttachStateChangeListener mTargetAttachListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            if (mScrollPending)
+                registerScrollListener();
+            if (mReleaseOnTargetDetached)
+                resume();
+        }
 
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            if (mReleaseOnTargetDetached) {
+                suspend();
+            } else if (null != mScrollCoordinator) {
+                // the observer goes away with the window, register again with the next one
+                mScrollCoordinator.unregister(mTargetView, SnakeViewMaker.this);
+                mScrollCoordinator = null;
+                mScrollPending = true;
+            }
+        }
+    };
+
+    private OnAttachListener mAttachListener = null;
+    private long mAttachStartTime = 0;
+    private boolean mAttachReported = true;
+    private boolean mReadyListenerAdded = false;
+    private final ViewTreeObserver.OnPreDrawListener mReadyListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (!isTargetLaidOut())
+                return true;
+            removeReadyListener();
+            updateTargetViewCache();
+            attachToRootLayoutInternal();
+            finishSnapshotUpdate();
+            // skip this pass, the next one lays out and draws the snake together with the target
+            return false;
+        }
+    };
+
+    private boolean mAsyncSnapshot = true;
+    private float mSnapshotCornerRadius = 0;
+    private float mTargetBitmapCornerRadius = 0;
+    private Bitmap mPreviousBitmap = null; // released once the pending snapshot is ready
+    private boolean mSnapshotPending = false;
+    private long mSnapshotStartNanos = 0;
+    private final SnapshotCache.Callback mSnapshotCallback = new SnapshotCache.Callback() {
+        @Override
+        public void onSnapshotReady(Bitmap snapshot) {
+            if (snapshot == mTargetBitmap)
+                SnakeViewMaker.this.onSnapshotReady();
+        }
+    };
+
+    public interface OnAttachListener {
+        /**
+         * the snake is in place and shows the target's snapshot
+         *
+         * @param attachTimeMs from attachToRootLayout to the snake being shown
+         */
+        void onSnakeAttached(SnakeViewMaker maker, long attachTimeMs);
+    }
 
     public SnakeViewMaker(Context context) {
         this.mContext = context;
     }
 
     public SnakeViewMaker addTargetView(View target) {
+        if (null != mTargetView && mTargetView != target) {
+            detachSnake();
+            mTargetView.removeOnAttachStateChangeListener(mTargetAttachListener);
+        }
+        if (mTargetView != target && null != target)
+            target.addOnAttachStateChangeListener(mTargetAttachListener);
         this.mTargetView = target;
         return this;
     }
 
+    /**
+     * tear the snake down when the owner stops and build it again lazily when it starts,
+     * {@link #release()} it when the owner is destroyed. null to unbind
+     */
+    public SnakeViewMaker bindToLifecycle(LifecycleOwner owner) {
+        if (null != mLifecycle)
+            mLifecycle.removeObserver(mLifecycleObserver);
+        mLifecycle = null == owner ? null : owner.getLifecycle();
+        if (null != mLifecycle)
+            mLifecycle.addObserver(mLifecycleObserver);
+        return this;
+    }
+
+    /**
+     * tear the snake down while the target is detached from its window, e.g. in a fragment
+     * whose view is destroyed, and build it again when the target comes back
+     */
+    public SnakeViewMaker setReleaseOnTargetDetached(boolean release) {
+        mReleaseOnTargetDetached = release;
+        return this;
+    }
+
+    /**
+     * detach the snake and drop everything it holds: snapshots go back to the cache, listeners
+     * are removed and the views kept for reuse are dropped. the maker can still be attached
+     * again afterwards
+     */
+    public void release() {
+        detachSnake();
+        bindToLifecycle(null);
+        setReleaseOnTargetDetached(false);
+        mRecycledRenderer = null;
+        mShieldView = null;
+        if (BuildConfig.DEBUG) {
+            List<String> retained = getRetainedResources();
+            if (!retained.isEmpty())
+                Log.w("SnakeViewMaker", "resources retained after release: " + retained);
+        }
+    }
+
+    /**
+     * a leak check for debug builds and tests: the resources this maker still holds,
+     * empty after {@link #release()}
+     */
+    public List<String> getRetainedResources() {
+        List<String> retained = new ArrayList<>();
+        if (null != mTargetBitmap || null != mPreviousBitmap)
+            retained.add("snapshot");
+        if (null != mTrailBitmap)
+            retained.add("trail snapshot");
+        if (null != mRenderer || null != mRecycledRenderer)
+            retained.add("renderer");
+        if (null != mShieldView && null != mShieldView.getParent())
+            retained.add("shield view");
+        if (null != mTouchCoordinator)
+            retained.add("touch coordinator");
+        if (mTouchOnTarget)
+            retained.add("target touch listener");
+        if (mTouchInterceptor.isOn())
+            retained.add("touch interceptor");
+        if (null != mVelocityTracker)
+            retained.add("velocity tracker");
+        if (null != mScrollCoordinator)
+            retained.add("scroll listener");
+        if (null != mContentView)
+            retained.add("layout listener");
+        if (mReadyListenerAdded)
+            retained.add("pre-draw listener");
+        if (isMoving() || mRefreshTicker.isRunning())
+            retained.add("frame callback");
+        if (null != mLifecycle)
+            retained.add("lifecycle observer");
+        return retained;
+    }
+
+    private void suspend() {
+        if (mSuspended || (null == mRenderer && !mReadyListenerAdded))
+            return;
+        detachSnake();
+        mSuspended = true;
+    }
+
+    private void resume() {
+        if (!mSuspended)
+            return;
+        mSuspended = false;
+        if (null != mTargetView && null != mAttachViewGroup)
+            attachToRootLayout(mAttachViewGroup);
+    }
+
+    private class LifecycleBinding implements LifecycleObserver {
+        @OnLifecycleEvent(Lifecycle.Event.ON_START)
+        void onStart() {
+            resume();
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+        void onStop() {
+            suspend();
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        void onDestroy() {
+            release();
+        }
+    }
+
+    /**
+     * choose how the segments follow the finger and go back on release, e.g.
+     * {@link TrailMotion} (the default) or {@link SpringChainMotion}
+     */
+    public SnakeViewMaker setMotion(SnakeMotion motion) {
+        stopFrames();
+        this.mMotion = null == motion ? new TrailMotion(mDragDelay) : motion;
+        if (null != mRenderer)
+            mMotion.reset(mChildCount, mTargetLocation[0], mTargetLocation[1]);
+        return this;
+    }
+
+    /**
+     * number of segments including the head, takes effect on the next attach.
+     * hundreds of segments are fine with {@link #RENDER_MODE_SINGLE_VIEW}, the child view mode
+     * adds one view per segment
+     */
+    public SnakeViewMaker setSegmentCount(int count) {
+        this.mChildCount = Math.max(1, count);
+        return this;
+    }
+
+    /**
+     * how many ms each segment lags behind the next one with the default {@link TrailMotion}.
+     * long snakes usually want a short delay. takes effect on the next attach
+     */
+    public SnakeViewMaker setSegmentDelay(int delay) {
+        this.mDragDelay = Math.max(0, delay);
+        if (mMotion instanceof TrailMotion)
+            ((TrailMotion) mMotion).setSegmentDelay(mDragDelay);
+        return this;
+    }
+
+    /**
+     * alpha of each segment, by default the head is opaque and the trail fades out.
+     * evaluated once per segment on attach
+     */
+    public SnakeViewMaker setSegmentAlphaCurve(SegmentCurve curve) {
+        this.mAlphaCurve = null == curve ? SegmentCurve.DEFAULT_ALPHA : curve;
+        return this;
+    }
+
+    /**
+     * scale of each segment around its center, 1 by default. evaluated once per segment on attach
+     */
+    public SnakeViewMaker setSegmentScaleCurve(SegmentCurve curve) {
+        this.mScaleCurve = null == curve ? SegmentCurve.DEFAULT_SCALE : curve;
+        return this;
+    }
+
+    /**
+     * choose how the segments are rendered, takes effect on the next attach
+     *
+     * @param renderMode {@link #RENDER_MODE_CHILD_VIEWS}, {@link #RENDER_MODE_SINGLE_VIEW}
+     *                   or {@link #RENDER_MODE_OVERLAY}. in overlay mode the maker becomes the
+     *                   OnTouchListener of the target while attached, a listener of the app on
+     *                   the target is replaced and not restored, use a click listener instead
+     */
+    public SnakeViewMaker setRenderMode(int renderMode) {
+        this.mRenderMode = renderMode;
+        return this;
+    }
+
+    /**
+     * the trailing segments are drawn translucent, so they can use a smaller and cheaper copy
+     * of the snapshot than the head. takes effect on the next attach or snapshot update
+     *
+     * @param scale  size of the trail snapshot relative to the target, in (0, 1]
+     * @param config {@link Bitmap.Config#ARGB_8888}, {@link Bitmap.Config#RGB_565} (only for
+     *               opaque targets, transparent pixels turn black) or
+     *               {@link Bitmap.Config#HARDWARE} (api 26+, hardware accelerated windows only)
+     */
+    public SnakeViewMaker setTrailSnapshotQuality(float scale, Bitmap.Config config) {
+        this.mTrailScale = Math.max(0.01f, Math.min(1f, scale));
+        this.mTrailConfig = null == config ? Bitmap.Config.ARGB_8888 : config;
+        return this;
+    }
+
+    /**
+     * @return bytes of bitmap memory held by this snake, a snapshot shared with other
+     * snakes is counted in full
+     */
+    public long getSnapshotMemoryBytes() {
+        long bytes = 0;
+        if (null != mTargetBitmap)
+            bytes += SnapshotCache.getByteCount(mTargetBitmap);
+        if (null != mTrailBitmap)
+            bytes += SnapshotCache.getByteCount(mTrailBitmap);
+        return bytes;
+    }
+
+    /**
+     * cache the segments in hardware layers while the snake is moving, so that each frame only
+     * updates translation and alpha instead of redrawing the translucent segments.
+     * the layers are created when a drag starts and dropped when the release animation ends
+     */
+    public SnakeViewMaker setHardwareCompositingEnabled(boolean enabled) {
+        this.mHardwareCompositing = enabled;
+        if (!enabled)
+            setCompositingActive(false);
+        return this;
+    }
+
+    /**
+     * report latency, frame and snapshot figures, null to stop.
+     * nothing is measured while no listener is set
+     */
+    public SnakeViewMaker setMetricsListener(SnakeMetricsListener listener) {
+        this.mMetricsListener = listener;
+        if (null != listener && mFrameIntervalNanos == 0) {
+            WindowManager windowManager = (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
+            float refreshRate = null == windowManager ? 60f : windowManager.getDefaultDisplay().getRefreshRate();
+            mFrameIntervalNanos = (long) (1000000000L / Math.max(1f, refreshRate));
+        }
+        resetMotionMetrics();
+        return this;
+    }
+
+    /**
+     * called once per attachToRootLayout, when the snake is shown
+     */
+    public SnakeViewMaker setOnAttachListener(OnAttachListener listener) {
+        this.mAttachListener = listener;
+        return this;
+    }
+
+    /**
+     * mask the corners of new snapshots on a background thread, on by default. the target itself
+     * is always drawn on the main thread, the snapshot is shown on the frame after it is masked
+     */
+    public SnakeViewMaker setAsyncSnapshotEnabled(boolean enabled) {
+        this.mAsyncSnapshot = enabled;
+        return this;
+    }
+
+    /**
+     * round the corners of the snapshot, in pixels. the mask is applied once when the snapshot
+     * is drawn, not per segment or per frame. takes effect on the next snapshot update
+     */
+    public SnakeViewMaker setSnapshotCornerRadius(float radius) {
+        this.mSnapshotCornerRadius = Math.max(0, radius);
+        return this;
+    }
+
+    /**
+     * append every touch event of the head to the trace, null to stop recording.
+     * replay it with {@link TouchTracePlayer} to reproduce a drag offline
+     */
+    public SnakeViewMaker setTouchRecorder(TouchTrace trace) {
+        this.mTouchRecorder = trace;
+        return this;
+    }
+
+    /**
+     * called by the group before the first attach, the snake is never moved to another group
+     */
+    SnakeViewMaker setGroup(SnakeGroup group) {
+        this.mGroup = group;
+        return this;
+    }
+
+    /**
+     * let several fingers drag several snakes at once, e.g. on a tablet. the snakes in this mode
+     * under the same attach layout share one shield, which no longer blocks the fingers that go
+     * down on another snake, and one touch listener which routes each finger to the snake it went
+     * down on. takes effect on the next attach
+     */
+    public SnakeViewMaker setMultiTouchEnabled(boolean enabled) {
+        this.mMultiTouch = enabled;
+        return this;
+    }
+
+    private void setCompositingActive(boolean active) {
+        if (mCompositingActive == active) return;
+        if (active && !mHardwareCompositing) return;
+        mCompositingActive = active;
+        if (null != mRenderer)
+            mRenderer.setHardwareCompositing(active);
+    }
+
     public void attachToRootLayout() {
         ViewGroup viewGroup = null;
         if (mContext instanceof Activity)
@@ -85,137 +551,349 @@ public class SnakeViewMaker implements View.OnTouchListener {
     }
 
     public void attachToRootLayout(ViewGroup attach) {
-        if (attach instanceof LinearLayout) {
+        if (attach instanceof LinearLayout && !useOverlay()) {
             Log.e("SnakeViewMaker", "view parent can not be LinearLayout!");
         } else {
             this.mAttachViewGroup = attach;
-            updateTargetViewCache();
-            if (mTargetHeight == 0 || mTargetWidth == 0 || null == mTargetBitmap) {
-                // if it is the first time to attach, the target view may be not finished the drawing process,
-                // so a listener is needed to observe the view draw finishing event
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
-                    mTargetView.getViewTreeObserver().addOnWindowFocusChangeListener(
-                            new ViewTreeObserver.OnWindowFocusChangeListener() {
-                                @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
-                                @Override
-                                public void onWindowFocusChanged(boolean hasFocus) {
-                                    Log.d("SnakeViewMaker", "hasFocus " + hasFocus);
-                                    if (hasFocus) {
-                                        mTargetView.getViewTreeObserver().removeOnWindowFocusChangeListener(this);
-                                        // mScreenWidth height bitmap cache
-                                        updateTargetViewCache();
-                                        // attach child as soon as the target view drawing finished
-                                        attachToRootLayoutInternal();
-                                    }
-                                }
-                            });
-                } else {
-                    mTargetView.postDelayed(new Runnable() {
-                        @Override
-                        public void run() {
-                            updateTargetViewCache();
-                            attachToRootLayoutInternal();
-                        }
-                    }, 3000);
-                }
-            } else {
+            mAttachStartTime = SystemClock.uptimeMillis();
+            mAttachReported = false;
+            removeReadyListener();
+            if (isTargetLaidOut()) {
+                updateTargetViewCache();
                 attachToRootLayoutInternal();
+                finishSnapshotUpdate();
+            } else {
+                // the target is not laid out yet, attach right before its first frame is drawn.
+                // this does not depend on the window gaining focus, e.g. in dialogs
+                mTargetView.getViewTreeObserver().addOnPreDrawListener(mReadyListener);
+                mReadyListenerAdded = true;
             }
 
-            // if there is scrolling event, update position
-            mTargetView.getViewTreeObserver().addOnScrollChangedListener(
-                    new ViewTreeObserver.OnScrollChangedListener() {
-                        @Override
-                        public void onScrollChanged() {
-                            if (mTargetHeight > 0 && mTargetWidth > 0
-                                    && null != mTargetBitmap) {
-                                updateChildrenPosition();
-                            }
-                        }
-                    });
+            // if there is scrolling event, update position. all the snakes under the same
+            // window share one listener
+            if (ViewCompat.isAttachedToWindow(mTargetView))
+                registerScrollListener();
+            else
+                mScrollPending = true;
         }
     }
 
+    private void registerScrollListener() {
+        mScrollPending = false;
+        if (null == mScrollCoordinator)
+            mScrollCoordinator = ScrollCoordinator.register(mTargetView, this);
+    }
+
     private void updateTargetViewCache() {
         mTargetHeight = mTargetView.getHeight();
         mTargetWidth = mTargetView.getWidth();
-        mTargetView.setDrawingCacheEnabled(true);
-        mTargetView.buildDrawingCache();
-        Bitmap bitmap = mTargetView.getDrawingCache();
-        if (null != bitmap) {
-            mTargetBitmap = Bitmap.createBitmap(bitmap);
+        if (mTargetWidth <= 0 || mTargetHeight <= 0)
+            return;
+        mSnapshotStartNanos = null == mMetricsListener ? 0 : System.nanoTime();
+        SnapshotCache cache = SnapshotCache.getInstance();
+        if (null != mTargetBitmap && mTargetBitmap.getWidth() == mTargetWidth
+                && mTargetBitmap.getHeight() == mTargetHeight
+                && mTargetBitmapCornerRadius == mSnapshotCornerRadius) {
+            // redraw into the snapshot we already hold instead of making a new copy
+            cache.refresh(mTargetView, mTargetBitmap);
+        } else {
+            Bitmap old = mTargetBitmap;
+            // a new snapshot is built off the main thread, attaching many snakes at once
+            // does not stall the first frame
+            mTargetBitmap = cache.acquire(mTargetView, mSnapshotCornerRadius, mAsyncSnapshot);
+            mTargetBitmapCornerRadius = mSnapshotCornerRadius;
+            // the snake keeps showing the previous snapshot until the new one is ready
+            cache.release(mPreviousBitmap);
+            mPreviousBitmap = old;
+        }
+        if (!waitForSnapshot())
+            updateTrailBitmap();
+    }
+
+    /**
+     * @return true if the snapshot is still being drawn, it is shown once ready
+     */
+    private boolean waitForSnapshot() {
+        mSnapshotPending = SnapshotCache.getInstance().waitFor(mTargetBitmap, mSnapshotCallback);
+        return mSnapshotPending;
+    }
+
+    /**
+     * call once the renderer shows the new snapshot, the previous one goes back to the cache.
+     * nothing to do while the new snapshot is pending
+     */
+    private void finishSnapshotUpdate() {
+        if (mSnapshotPending)
+            return;
+        SnapshotCache.getInstance().release(mPreviousBitmap);
+        mPreviousBitmap = null;
+        if (null != mMetricsListener) {
+            SnapshotCache cache = SnapshotCache.getInstance();
+            mMetricsListener.onSnapshot(System.nanoTime() - mSnapshotStartNanos, getSnapshotMemoryBytes(),
+                    cache.getLiveSnapshotCount(), cache.getBitmapCount());
+        }
+    }
+
+    private void onSnapshotReady() {
+        mSnapshotPending = false;
+        updateTrailBitmap();
+        if (null != mRenderer) {
+            mRenderer.setBitmap(mTargetBitmap, getTrailBitmap());
+            hideTarget();
+            reportAttached();
+        }
+        finishSnapshotUpdate();
+    }
+
+    private void releaseTargetViewCache() {
+        SnapshotCache cache = SnapshotCache.getInstance();
+        cache.removeCallback(mSnapshotCallback);
+        mSnapshotPending = false;
+        cache.release(mTargetBitmap);
+        cache.release(mPreviousBitmap);
+        mTargetBitmap = null;
+        mPreviousBitmap = null;
+        recycleTrailBitmap();
+    }
+
+    /**
+     * build the reduced trail copy from the head snapshot, once per snapshot
+     */
+    private void updateTrailBitmap() {
+        // Bitmap.Config.HARDWARE does not exist below api 26, the field is only touched behind the check
+        boolean hardware = isHardwareConfig(mTrailConfig) && null != mAttachViewGroup
+                && mAttachViewGroup.isHardwareAccelerated();
+        Bitmap.Config config = isHardwareConfig(mTrailConfig) ? Bitmap.Config.ARGB_8888 : mTrailConfig;
+        if (null == mTargetBitmap || mTrailScale >= 1f && !hardware && config == Bitmap.Config.ARGB_8888) {
+            recycleTrailBitmap();
+            return;
+        }
+        int width = Math.max(1, Math.round(mTargetWidth * mTrailScale));
+        int height = Math.max(1, Math.round(mTargetHeight * mTrailScale));
+        // hardware bitmaps can not be drawn into, draw a software copy and upload it
+        if (null == mTrailBitmap || mTrailBitmap.getWidth() != width
+                || mTrailBitmap.getHeight() != height || mTrailBitmap.getConfig() != config) {
+            recycleTrailBitmap();
+            mTrailBitmap = Bitmap.createBitmap(width, height, config);
+        }
+        if (null == mTrailCanvas) {
+            mTrailCanvas = new Canvas();
+            mTrailPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        }
+        mTrailBitmap.eraseColor(0);
+        mTrailCanvas.setBitmap(mTrailBitmap);
+        mTrailCanvas.save();
+        mTrailCanvas.scale(width * 1f / mTargetBitmap.getWidth(), height * 1f / mTargetBitmap.getHeight());
+        mTrailCanvas.drawBitmap(mTargetBitmap, 0, 0, mTrailPaint);
+        mTrailCanvas.restore();
+        mTrailCanvas.setBitmap(null);
+        if (hardware)
+            mTrailBitmap = uploadToHardware(mTrailBitmap);
+    }
+
+    private static boolean isHardwareConfig(Bitmap.Config config) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE;
+    }
+
+    @TargetApi(Build.VERSION_CODES.O)
+    private static Bitmap uploadToHardware(Bitmap software) {
+        Bitmap hardware = software.copy(Bitmap.Config.HARDWARE, false);
+        if (null == hardware)
+            return software;
+        software.recycle();
+        return hardware;
+    }
+
+    private void recycleTrailBitmap() {
+        if (null != mTrailBitmap) {
+            mTrailBitmap.recycle();
+            mTrailBitmap = null;
         }
-        mTargetView.setDrawingCacheEnabled(false);
+    }
+
+    private Bitmap getTrailBitmap() {
+        return null == mTrailBitmap ? mTargetBitmap : mTrailBitmap;
     }
 
     private void attachToRootLayoutInternal() {
 
         // remove shield and children
+        setShieldRaised(false);
+        showTarget();
+        if (mTouchOnTarget) {
+            mTargetView.setOnTouchListener(null);
+            mTouchOnTarget = false;
+        }
         if (null != mShieldView) {
             mAttachViewGroup.removeView(mShieldView);
         }
-        if (!mChildren.isEmpty()) {
-            for (View child : mChildren)
-                mAttachViewGroup.removeView(child);
-            mChildren.clear();
-        }
-
-        // add a shield to block the touch, click, or scroll event when snake is going
-        if (null == mShieldView) {
-            mShieldView = new ImageView(mContext);
-            ViewGroup.LayoutParams layoutParams = new ViewGroup.LayoutParams(
-                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
-            mShieldView.setLayoutParams(layoutParams);
-            mShieldView.setBackgroundColor(Resources.getSystem().getColor(android.R.color.transparent));
-            mShieldView.setClickable(true);
-            mShieldView.setFocusableInTouchMode(true);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                mShieldView.setElevation(mTargetView.getElevation());
+        if (null != mTouchCoordinator) {
+            mTouchCoordinator.unregister(this);
+            mTouchCoordinator = null;
+        }
+        recycleRenderer();
+
+        float elevation = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            elevation = mTargetView.getElevation();
+        }
+        if (useOverlay()) {
+            // nothing is added to the layout: the snake is drawn in its overlay, the target takes
+            // the touch and the shield is a touch interceptor
+        } else if (mMultiTouch || null != mGroup) {
+            // the snakes in multi-touch mode share one shield below all of them, and one
+            // touch listener which routes each finger to its snake
+            mTouchCoordinator = TouchCoordinator.register(mAttachViewGroup, this, elevation);
+        } else {
+            // add a shield to block the touch, click, or scroll event when snake is going
+            if (null == mShieldView) {
+                mShieldView = new ImageView(mContext);
+                ViewGroup.LayoutParams layoutParams = new ViewGroup.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+                mShieldView.setLayoutParams(layoutParams);
+                mShieldView.setBackgroundColor(Resources.getSystem().getColor(android.R.color.transparent));
+                mShieldView.setClickable(true);
+                mShieldView.setFocusableInTouchMode(true);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    mShieldView.setElevation(elevation);
+                }
             }
+            mAttachViewGroup.addView(mShieldView);
+            // invisible rather than gone, raising it on every touch must not lay the parent out
+            mShieldView.setVisibility(View.INVISIBLE);
         }
-        mAttachViewGroup.addView(mShieldView);
-        mShieldView.setVisibility(View.GONE);
 
         // add child
         updateTargetViewLocation();
+        float[] alphas = new float[mChildCount];
+        float[] scales = new float[mChildCount];
         for (int i = 0; i < mChildCount; i++) {
-            ImageView child_i = new ImageView(mContext);
-            mAttachViewGroup.addView(child_i);
-            child_i.getLayoutParams().width = mTargetWidth;
-            child_i.getLayoutParams().height = mTargetHeight;
-            child_i.setScaleType(ImageView.ScaleType.CENTER_CROP);
-            child_i.setImageBitmap(mTargetBitmap);
-            child_i.setTranslationX(mTargetLocation[0]);
-            child_i.setTranslationY(mTargetLocation[1]);
-            float alpha = i == mChildCount - 1 ? 1f : 0.5f / mChildCount * (i + 1);
-            child_i.setAlpha(alpha);
-            mChildren.add(child_i);
-            if (i == mChildCount - 1) {
-                child_i.setOnTouchListener(this);
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    child_i.setElevation(mTargetView.getElevation());
-                }
-                // onClick event
-                child_i.setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        mTargetView.performClick();
-                    }
-                });
-            }
+            alphas[i] = Math.max(0f, Math.min(1f, mAlphaCurve.valueAt(i, mChildCount)));
+            scales[i] = mScaleCurve.valueAt(i, mChildCount);
+        }
+        mRenderer = obtainRenderer();
+        // a pending snapshot is handed over once it is drawn, the target stays visible until then
+        mRenderer.attach(mAttachViewGroup, mSnapshotPending ? null : mTargetBitmap,
+                mSnapshotPending ? null : getTrailBitmap(),
+                mTargetWidth, mTargetHeight, alphas, scales, elevation);
+        if (mSegmentX.length != mChildCount) {
+            mSegmentX = new float[mChildCount];
+            mSegmentY = new float[mChildCount];
         }
-        mTargetView.setVisibility(View.INVISIBLE);
+        moveSegmentsToRest();
+        mSnakeOnScreen = true;
+        mHeadView = mRenderer.getHeadView();
+        if (null == mHeadView) {
+            // the overlay takes no touch, the target does and handles its own click
+            mTouchOnTarget = true;
+            mTargetView.setOnTouchListener(this);
+        } else {
+            mHeadView.setOnTouchListener(null == mTouchCoordinator ? this : mTouchCoordinator);
+            // onClick event
+            mHeadView.setOnClickListener(mHeadClickListener);
+        }
+        if (!mSnapshotPending) {
+            hideTarget();
+            reportAttached();
+        }
+    }
+
+    private boolean useOverlay() {
+        return null == mGroup && mRenderMode == RENDER_MODE_OVERLAY
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    private void hideTarget() {
+        if (!mTouchOnTarget) {
+            mTargetView.setVisibility(View.INVISIBLE);
+        } else if (!mTargetHidden) {
+            // an invisible view takes no touch
+            mTargetAlpha = mTargetView.getAlpha();
+            mTargetView.setAlpha(0f);
+        }
+        mTargetHidden = true;
+    }
+
+    private void showTarget() {
+        if (mTargetHidden && mTouchOnTarget)
+            mTargetView.setAlpha(mTargetAlpha);
+        mTargetHidden = false;
+        mTargetView.setVisibility(View.VISIBLE);
+    }
+
+    private boolean isTargetLaidOut() {
+        return ViewCompat.isLaidOut(mTargetView) && mTargetView.getWidth() > 0
+                && mTargetView.getHeight() > 0;
+    }
+
+    private void removeReadyListener() {
+        if (mReadyListenerAdded) {
+            mReadyListenerAdded = false;
+            mTargetView.getViewTreeObserver().removeOnPreDrawListener(mReadyListener);
+        }
+    }
+
+    private void reportAttached() {
+        if (mAttachReported) return;
+        mAttachReported = true;
+        if (null != mAttachListener)
+            mAttachListener.onSnakeAttached(this, SystemClock.uptimeMillis() - mAttachStartTime);
+    }
+
+    private SnakeRenderer obtainRenderer() {
+        SnakeRenderer renderer = mRecycledRenderer;
+        mRecycledRenderer = null;
+        if (null != mGroup) {
+            // the snakes of a group are drawn by the group's view
+            return null == renderer ? mGroup.newRenderer() : renderer;
+        }
+        boolean overlay = useOverlay();
+        boolean singleView = !overlay && mRenderMode != RENDER_MODE_CHILD_VIEWS;
+        if (null == renderer || overlay != renderer instanceof OverlayRenderer
+                || singleView != renderer instanceof SnakeView) {
+            renderer = overlay ? new OverlayRenderer()
+                    : singleView ? new SnakeView(mContext) : new ChildViewRenderer(mContext);
+        }
+        return renderer;
+    }
+
+    private void recycleRenderer() {
+        if (null != mRenderer) {
+            if (mCompositingActive)
+                mRenderer.setHardwareCompositing(false);
+            mRenderer.detach();
+            mRecycledRenderer = mRenderer;
+            mRenderer = null;
+            mHeadView = null;
+        }
+        mCompositingActive = false;
+    }
+
+    void onScrollChanged() {
+        if (mTargetHeight <= 0 || mTargetWidth <= 0 || null == mTargetBitmap || null == mRenderer)
+            return;
+        // nothing to move while both the target and the snake are scrolled out of sight
+        boolean targetOnScreen = mTargetView.getGlobalVisibleRect(mVisibleRect);
+        if (!targetOnScreen && !mSnakeOnScreen)
+            return;
+        mSnakeOnScreen = targetOnScreen;
+        updateChildrenPosition();
     }
 
     private void updateChildrenPosition() {
         updateTargetViewLocation();
-        for (View child : mChildren) {
-            if (mTargetLocation[0] == child.getTranslationX()
-                    && mTargetLocation[1] == child.getTranslationY())
-                break;
-            child.setTranslationX(mTargetLocation[0]);
-            child.setTranslationY(mTargetLocation[1]);
-            child.requestLayout();
+        if (null == mRenderer || isMoving()) return;
+        moveSegmentsToRest();
+    }
+
+    private void moveSegmentsToRest() {
+        int count = mSegmentX.length; // the count of the last attach
+        mMotion.reset(count, mTargetLocation[0], mTargetLocation[1]);
+        for (int i = 0; i < count; i++) {
+            // kept in mSegmentX/Y as well, the head is hit tested there
+            mSegmentX[i] = mTargetLocation[0];
+            mSegmentY[i] = mTargetLocation[1];
+            mRenderer.setSegmentTranslation(i, mSegmentX[i], mSegmentY[i]);
         }
     }
 
@@ -226,124 +904,390 @@ public class SnakeViewMaker implements View.OnTouchListener {
 
     public void updateSnakeImage() {
         if (null == mTargetView) return;
+        mRefreshTicker.stop();
+        mDirtyRect.setEmpty();
+        Bitmap old = mTargetBitmap;
+        Bitmap oldTrail = mTrailBitmap;
         updateTargetViewCache();
-        for (ImageView child : mChildren) {
-            child.setImageBitmap(mTargetBitmap);
-            child.invalidate();
+        notifyBitmapChanged(old, oldTrail);
+        finishSnapshotUpdate();
+    }
+
+    private void notifyBitmapChanged(Bitmap oldHead, Bitmap oldTrail) {
+        if (null == mRenderer || mSnapshotPending) return;
+        if (oldHead == mTargetBitmap && oldTrail == mTrailBitmap)
+            mRenderer.invalidateBitmap();
+        else
+            mRenderer.setBitmap(mTargetBitmap, getTrailBitmap());
+    }
+
+    /**
+     * mark the whole target as changed, the snake image is refreshed on the next frame
+     */
+    public void invalidateSnakeImage() {
+        if (null == mTargetView) return;
+        invalidateSnakeImage(0, 0, mTargetView.getWidth(), mTargetView.getHeight());
+    }
+
+    /**
+     * mark a part of the target as changed, e.g. a badge, in the target's own coordinates.
+     * only the dirty region is redrawn into the existing snapshot, and any number of calls
+     * within one frame are merged into one refresh
+     */
+    public void invalidateSnakeImage(int left, int top, int right, int bottom) {
+        if (null == mTargetView) return;
+        mDirtyRect.union(left, top, right, bottom);
+        mRefreshTicker.start();
+    }
+
+    private void refreshDirtyRegion() {
+        if (null == mTargetView || mDirtyRect.isEmpty()) return;
+        if (null == mTargetBitmap || mTargetBitmap.getWidth() != mTargetView.getWidth()
+                || mTargetBitmap.getHeight() != mTargetView.getHeight()) {
+            // the size has changed, a full snapshot is needed
+            updateSnakeImage();
+            return;
+        }
+        if (mDirtyRect.intersect(0, 0, mTargetBitmap.getWidth(), mTargetBitmap.getHeight())) {
+            SnapshotCache.getInstance().refresh(mTargetView, mTargetBitmap, mDirtyRect);
+            if (!waitForSnapshot()) {
+                Bitmap oldTrail = mTrailBitmap;
+                updateTrailBitmap();
+                notifyBitmapChanged(mTargetBitmap, oldTrail);
+            }
         }
+        mDirtyRect.setEmpty();
     }
 
     public void detachSnake() {
         if (null == mTargetView) return;
-        mTargetView.setVisibility(View.VISIBLE);
+        mSuspended = false;
+        removeReadyListener();
+        mAttachReported = true;
+        setShieldRaised(false);
+        showTarget();
+        if (mTouchOnTarget) {
+            mTargetView.setOnTouchListener(null);
+            mTouchOnTarget = false;
+        }
+        mActivePointerId = MotionEvent.INVALID_POINTER_ID;
+        if (null != mTouchCoordinator) {
+            mTouchCoordinator.unregister(this);
+            mTouchCoordinator = null;
+        }
         if (null != mAttachViewGroup) {
             if (null != mShieldView) {
                 mAttachViewGroup.removeView(mShieldView);
             }
-            for (View child : mChildren)
-                mAttachViewGroup.removeView(child);
-            mChildren.clear();
+        }
+        releaseContentTopInWindow();
+        mScrollPending = false;
+        if (null != mScrollCoordinator) {
+            mScrollCoordinator.unregister(mTargetView, this);
+            mScrollCoordinator = null;
+        }
+        stopFrames();
+        mRefreshTicker.stop();
+        mDirtyRect.setEmpty();
+        recycleRenderer();
+        releaseTargetViewCache();
+        if (null != mVelocityTracker) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        if (mReleasing) {
+            mReleasing = false;
+            if (null != mMetricsListener)
+                reportMotionEnd();
         }
     }
 
     @Override
     public boolean onTouch(View v, MotionEvent event) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            mActivePointerId = event.getPointerId(0);
+        } else if (action == MotionEvent.ACTION_POINTER_UP
+                && event.getPointerId(event.getActionIndex()) == mActivePointerId) {
+            // another finger on the head takes the drag over
+            mActivePointerId = event.getPointerId(event.getActionIndex() == 0 ? 1 : 0);
+        }
+        int index = event.findPointerIndex(mActivePointerId);
+        if (index < 0)
+            return false;
+        float rawOffsetX = event.getRawX() - event.getX();
+        float rawOffsetY = event.getRawY() - event.getY();
         if (mVelocityTracker == null) {
             mVelocityTracker = VelocityTracker.obtain();
         }
-        mVelocityTracker.addMovement(event);
-        int velocityX = 0;
-        int velocityY = 0;
-        if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            updateTargetViewLocation();
-            mShieldView.setVisibility(mShieldEnabled ? View.VISIBLE : View.GONE);
-        } else if (event.getAction() == MotionEvent.ACTION_MOVE) {
-            if (event.getEventTime() - event.getDownTime() >= 150) {
-                float accX = 0;
-                float accY = 0;
-                if (mVelocityTracker != null) {
-                    mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
-                    velocityX = (int) mVelocityTracker.getXVelocity();
-                    velocityY = (int) mVelocityTracker.getYVelocity();
-                    accX = velocityX / (mMaxVelocity);
-                    accY = velocityY / (mMaxVelocity);
+        addRawMovement(mVelocityTracker, event, rawOffsetX, rawOffsetY);
+        float rawX = event.getX(index) + rawOffsetX;
+        float rawY = event.getY(index) + rawOffsetY;
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                if (v == mTargetView && null != v.getParent()) {
+                    // a scrolling layout around the target would take the drag over. the same as
+                    // with a head view above the layout, a drag from the snake does not scroll
+                    v.getParent().requestDisallowInterceptTouchEvent(true);
                 }
-                dragView(event.getRawX() - mTargetWidth / 2,
-                        event.getRawY() - mTargetHeight / 2 - mContentTopInWindow,
-                        velocityX, velocityY, accX, accY);
-                mChildren.get(mChildCount - 1).setClickable(false);
-                return true;
+                startTouch(event.getEventTime(), rawX, rawY);
+                // a target which is not clickable would not take the following moves
+                return v == mTargetView && !v.isClickable();
+            case MotionEvent.ACTION_MOVE:
+                boolean dragging = moveTouch(event, index, rawOffsetX, rawOffsetY);
+                if (dragging && v == mTargetView) {
+                    // the target saw the down, a drag must not press or long press it
+                    v.setPressed(false);
+                    v.cancelLongPress();
+                }
+                return dragging;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                // the velocity is only needed once, at release
+                mVelocityTracker.computeCurrentVelocity(1000, SnakeMath.MAX_RELEASE_VELOCITY);
+                boolean dragged = endTouch(event.getEventTime(), rawX, rawY,
+                        mVelocityTracker.getXVelocity(mActivePointerId),
+                        mVelocityTracker.getYVelocity(mActivePointerId));
+                mActivePointerId = MotionEvent.INVALID_POINTER_ID;
+                return dragged;
+        }
+        return false;
+    }
+
+    /**
+     * the head moves under the finger, so the velocity and the samples are taken in raw
+     * coordinates. the offset is the same for every pointer of the event
+     */
+    static void addRawMovement(VelocityTracker tracker, MotionEvent event,
+                               float rawOffsetX, float rawOffsetY) {
+        event.offsetLocation(rawOffsetX, rawOffsetY);
+        tracker.addMovement(event);
+        event.offsetLocation(-rawOffsetX, -rawOffsetY);
+    }
+
+    /**
+     * a finger went down on the head, in raw coordinates
+     */
+    void startTouch(long time, float rawX, float rawY) {
+        if (null != mMetricsListener)
+            reportMotionEnd(); // a drag may interrupt the previous release
+        updateTargetViewLocation();
+        if (null != mTouchRecorder) {
+            // the location of a down is up to date, the following moves and up use the same mapping
+            mTouchRecorder.setGeometry(mTargetLocation[0], mTargetLocation[1],
+                    mTargetWidth / 2, mTargetHeight / 2 + mContentTopInWindow,
+                    mTargetWidth, mTargetHeight);
+            mTouchRecorder.add(MotionEvent.ACTION_DOWN, time, rawX, rawY);
+        }
+        mTouchDownTime = time;
+        mReleasing = false;
+        mMotion.startDrag(time, mTargetLocation[0], mTargetLocation[1]);
+        setShieldRaised(mShieldEnabled);
+    }
+
+    /**
+     * only record the samples of the pointer at index, the segments are moved on the next frame.
+     * a move carries every touch sample since the previous one, on 240Hz panels that is
+     * several per frame. the historical positions are in view coordinates, the offset to raw
+     * coordinates is the same for the whole event
+     *
+     * @return true once the touch is a drag
+     */
+    boolean moveTouch(MotionEvent event, int index, float rawOffsetX, float rawOffsetY) {
+        int historySize = event.getHistorySize();
+        if (null != mTouchRecorder) {
+            for (int h = 0; h < historySize; h++) {
+                mTouchRecorder.add(MotionEvent.ACTION_MOVE, event.getHistoricalEventTime(h),
+                        event.getHistoricalX(index, h) + rawOffsetX, event.getHistoricalY(index, h) + rawOffsetY);
             }
+            mTouchRecorder.add(MotionEvent.ACTION_MOVE, event.getEventTime(),
+                    event.getX(index) + rawOffsetX, event.getY(index) + rawOffsetY);
+        }
+        // a move only drags the snake DRAG_START_DELAY after the finger went down
+        long dragStartTime = mTouchDownTime + SnakeMath.DRAG_START_DELAY;
+        if (event.getEventTime() < dragStartTime)
+            return false;
+        float offsetX = rawOffsetX - mTargetWidth / 2;
+        float offsetY = rawOffsetY - mTargetHeight / 2 - mContentTopInWindow;
+        for (int h = 0; h < historySize; h++) {
+            long time = event.getHistoricalEventTime(h);
+            if (time >= dragStartTime)
+                mMotion.addSample(time, event.getHistoricalX(index, h) + offsetX,
+                        event.getHistoricalY(index, h) + offsetY);
+        }
+        mMotion.addSample(event.getEventTime(), event.getX(index) + offsetX, event.getY(index) + offsetY);
+        if (null != mMetricsListener && mPendingInputCount < mPendingInputTimes.length)
+            mPendingInputTimes[mPendingInputCount++] = event.getEventTime();
+        startFrames();
+        // a touch coordinator clicks the head itself, the head view of a group is shared
+        if (null != mHeadView && null == mTouchCoordinator)
+            mHeadView.setClickable(false);
+        setCompositingActive(true);
+        return true;
+    }
 
-        } else if (event.getAction() == MotionEvent.ACTION_UP) {
-            mChildren.get(mChildCount - 1).setClickable(true);
-            if (event.getEventTime() - event.getDownTime() < 150) {
-                mShieldView.setVisibility(View.GONE);
-                return false;
-            } else {
-                releaseView();
-                return true;
+    /**
+     * the finger went up or the touch was canceled, a cancel is recorded as an up
+     *
+     * @return true if the touch was a drag and the snake is released, false for a tap
+     */
+    boolean endTouch(long time, float rawX, float rawY, float velocityX, float velocityY) {
+        if (null != mTouchRecorder)
+            mTouchRecorder.add(MotionEvent.ACTION_UP, time, rawX, rawY, velocityX, velocityY);
+        if (null != mHeadView && null == mTouchCoordinator)
+            mHeadView.setClickable(true);
+        if (time - mTouchDownTime < SnakeMath.DRAG_START_DELAY) {
+            setShieldRaised(false);
+            if (isMoving()) {
+                // a tap interrupted a release, put the snake back at rest
+                stopFrames();
+                updateChildrenPosition();
+                setCompositingActive(false);
             }
+            return false;
         }
-        return false;
+        releaseView(time, velocityX, velocityY);
+        return true;
     }
 
-    private void dragView(final float currentX, final float currentY,
-                          float velocityX, float velocityY, float accX, float accY) {
-//        Log.d("SnakeViewMaker", "vx " + velocityX + " vy " + velocityY
-//                + " accX " + accX + " accY " + accY
-//                + " x " + currentX + " y " + currentY);
-        for (int i = 0; i < mChildCount; i++) {
-            final View child_i = mChildren.get(i);
-            final float transX = currentX;
-            final float transY = currentY;
-            final int delay = mDragDelay * (mChildCount - 1 - i);
-            child_i.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    child_i.setTranslationX(transX);
-                    child_i.setTranslationY(transY);
-                    child_i.requestLayout();
-                }
-            }, delay);
+    /**
+     * @return true if the head is drawn under the given raw point
+     */
+    boolean isHeadAt(float rawX, float rawY) {
+        if (null == mRenderer || mSegmentX.length == 0)
+            return false;
+        int head = mSegmentX.length - 1;
+        float x = rawX - mSegmentX[head];
+        float y = rawY - mContentTopInWindow - mSegmentY[head];
+        return x >= 0 && x < mTargetWidth && y >= 0 && y < mTargetHeight;
+    }
+
+    View getHeadView() {
+        return mHeadView;
+    }
+
+    void performHeadClick() {
+        // not through the head view, the snakes of a group share it
+        if (null != mTargetView)
+            mTargetView.performClick();
+    }
+
+    private void startFrames() {
+        if (null != mGroup)
+            mGroup.startFrames(this);
+        else
+            mFrameTicker.start();
+    }
+
+    private void stopFrames() {
+        if (null != mGroup)
+            mGroup.stopFrames(this);
+        else
+            mFrameTicker.stop();
+    }
+
+    private boolean isMoving() {
+        return null != mGroup ? mGroup.isMoving(this) : mFrameTicker.isRunning();
+    }
+
+    private void setShieldRaised(boolean raised) {
+        if (mShieldRaised == raised) return;
+        mShieldRaised = raised;
+        if (null != mTouchCoordinator)
+            mTouchCoordinator.holdShield(raised);
+        else if (mTouchOnTarget && raised)
+            mTouchInterceptor.start(mTargetView, mAttachViewGroup, !mMultiTouch);
+        else if (mTouchOnTarget)
+            mTouchInterceptor.stop();
+        else if (null != mShieldView)
+            mShieldView.setVisibility(raised ? View.VISIBLE : View.INVISIBLE);
+    }
+
+    /**
+     * move the segments to where the motion model puts them at the given frame time
+     *
+     * @return true while the motion model has something to move
+     */
+    boolean updateSegmentsOnFrame(long frameTimeNanos) {
+        if (null == mRenderer) return false;
+        long start = null == mMetricsListener ? 0 : System.nanoTime();
+        int updated = mMotion.update(frameTimeNanos / 1000000, mSegmentX, mSegmentY);
+        for (int i = 0; i < updated; i++)
+            mRenderer.setSegmentTranslation(i, mSegmentX[i], mSegmentY[i]);
+        if (null != mMetricsListener)
+            reportFrame(frameTimeNanos, System.nanoTime() - start, updated);
+        if (updated == 0) {
+            // the release ends when the model comes to rest
+            if (mReleasing)
+                mReleaseEndAction.run();
+            return false;
         }
+        return true;
     }
 
-    private void releaseView() {
-        final Interpolator interpolator = new OvershootInterpolator();
-        final int duration = 700;
-        for (int i = 0; i < mChildCount; i++) {
-            final View child_i = mChildren.get(i);
-            final int delay = mDragDelay * (mChildCount - 1 - i);
-            child_i.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    child_i.animate()
-                            .translationX(mTargetLocation[0])
-                            .translationY(mTargetLocation[1])
-                            .setDuration(duration)
-                            .setInterpolator(interpolator)
-                            .start();
-                }
-            }, delay);
+    private void reportFrame(long frameTimeNanos, long updateNanos, int updated) {
+        long frameTime = frameTimeNanos / 1000000;
+        for (int i = 0; i < mPendingInputCount; i++)
+            mMetricsListener.onInputLatency(frameTime - mPendingInputTimes[i]);
+        mPendingInputCount = 0;
+        if (updated > 0)
+            mMetricsListener.onFrameUpdate(updateNanos, updated);
+        if (mLastFrameTimeNanos >= 0 && mFrameIntervalNanos > 0) {
+            // rounded to whole display frames, a late frame counts as missed from 1.5 intervals on
+            long intervals = (frameTimeNanos - mLastFrameTimeNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos;
+            mMissedFrames += Math.max(0, intervals - 1);
         }
-        mChildren.get(0).animate().setListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                // when all animators finish, release the shield view
-                mShieldView.setVisibility(View.GONE);
-            }
-        });
+        mLastFrameTimeNanos = frameTimeNanos;
+        mMotionFrames++;
+    }
+
+    private void reportMotionEnd() {
+        if (mMotionFrames > 0)
+            mMetricsListener.onMotionEnd(mMotionFrames, mMissedFrames);
+        resetMotionMetrics();
+    }
+
+    private void resetMotionMetrics() {
+        mPendingInputCount = 0;
+        mLastFrameTimeNanos = -1;
+        mMotionFrames = 0;
+        mMissedFrames = 0;
+    }
+
+    private void releaseView(long releaseTime, float velocityX, float velocityY) {
+        mReleasing = true;
+        mMotion.release(releaseTime, mTargetLocation[0], mTargetLocation[1], velocityX, velocityY);
+        // the release runs on the same frame callback as the drag, a new drag takes it over
+        startFrames();
     }
 
     private void updateTargetViewLocation() {
         mTargetView.getLocationOnScreen(mTargetLocation);
+        if (!mContentTopValid) {
+            updateContentTopInWindow();
+        }
+        int top = mTargetLocation[1] - mContentTopInWindow;
+        mTargetLocation[1] = top;
+    }
+
+    /**
+     * the content top only changes with the window insets, the action bar or the window flags,
+     * all of which lay the content view out again. so it is resolved once here and then
+     * invalidated by a layout change listener on the content view
+     */
+    private void updateContentTopInWindow() {
         int statusBarHeight = getStatusBarHeight(mContext);
         int titleBarHeight = 0;
         if (mContext instanceof Activity) {
             // actionbar height
             Activity activity = (Activity) mContext;
             ViewGroup content = (ViewGroup) activity.findViewById(android.R.id.content);
+            if (content != mContentView) {
+                if (null != mContentView)
+                    mContentView.removeOnLayoutChangeListener(mContentLayoutListener);
+                mContentView = content;
+                mContentView.addOnLayoutChangeListener(mContentLayoutListener);
+            }
             titleBarHeight = content.getTop();
             // statusBar height compat
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
@@ -358,8 +1302,15 @@ public class SnakeViewMaker implements View.OnTouchListener {
             }
         }
         mContentTopInWindow = titleBarHeight + statusBarHeight;
-        int top = mTargetLocation[1] - mContentTopInWindow;
-        mTargetLocation[1] = top;
+        mContentTopValid = true;
+    }
+
+    private void releaseContentTopInWindow() {
+        if (null != mContentView) {
+            mContentView.removeOnLayoutChangeListener(mContentLayoutListener);
+            mContentView = null;
+        }
+        mContentTopValid = false;
     }
 
     public SnakeViewMaker interceptTouchEvent(boolean intercept) {
@@ -369,33 +1320,30 @@ public class SnakeViewMaker implements View.OnTouchListener {
 
     public void setVisibility(int visibility) {
         if (null == mTargetView) return;
-        if (!mChildren.isEmpty()) {
-            for (View child : mChildren)
-                child.setVisibility(visibility);
+        if (null != mRenderer) {
+            mRenderer.setVisibility(visibility);
         }
     }
 
     public void setClickable(boolean clickable) {
         if (null == mTargetView) return;
-        if (!mChildren.isEmpty()) {
-            mChildren.get(mChildCount - 1).setClickable(clickable);
+        if (null != mHeadView) {
+            mHeadView.setClickable(clickable);
         }
     }
 
     public void setEnabled(boolean enabled) {
         if (null == mTargetView) return;
-        if (!mChildren.isEmpty()) {
-            mChildren.get(mChildCount - 1).setEnabled(enabled);
+        if (null != mHeadView) {
+            mHeadView.setEnabled(enabled);
         }
     }
 
-    private float getOvershootInterpolation(float tension, float t) {
-        t -= 1.0f;
-        return t * t * ((tension + 1) * t + tension) + 1.0f;
-    }
-
     private int getStatusBarHeight(Context context) {
-        int resourceId = context.getResources().getIdentifier("status_bar_height", "dimen", "android");
-        return context.getResources().getDimensionPixelSize(resourceId);
+        // the identifier lookup is a string search, do it only once
+        if (sStatusBarHeightResId == 0) {
+            sStatusBarHeightResId = context.getResources().getIdentifier("status_bar_height", "dimen", "android");
+        }
+        return context.getResources().getDimensionPixelSize(sStatusBarHeightResId);
     }
 }
@@ -0,0 +1,435 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.view.ViewCompat;
+import android.util.Log;
+import android.view.View;
+
+import com.zp.snakeviewmaker.BuildConfig;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * a process-wide cache of target view snapshots shared by all the SnakeViewMakers.
+ * snapshots are keyed by target view and size and reference counted, unreferenced snapshots
+ * are kept in LRU order within a byte budget. bitmaps of snapshots whose target has been
+ * collected or which fell out of the LRU are pooled, within a budget of their own, and reused
+ * for the next snapshot of the same size.
+ * a new snapshot can be built asynchronously: the target is drawn into it on the main thread,
+ * where the bitmaps the target draws are guaranteed to be alive, the corners are masked on a
+ * background thread and the snapshot is handed back to the waiting snakes together on the next
+ * frame. must be used on the main thread
+ */
+
+public final class SnapshotCache {
+
+    private static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+    private static final long DEFAULT_MAX_POOL_BYTES = 4 * 1024 * 1024;
+
+    private static SnapshotCache sInstance = null;
+
+    public static SnapshotCache getInstance() {
+        if (null == sInstance)
+            sInstance = new SnapshotCache();
+        return sInstance;
+    }
+
+    /**
+     * an asynchronous snapshot is ready, called on the main thread
+     */
+    interface Callback {
+        void onSnapshotReady(Bitmap snapshot);
+    }
+
+    private static class Entry {
+        WeakReference<View> target;
+        int width, height;
+        float cornerRadius;
+        Bitmap bitmap;
+        int refCount;
+        int pendingJobs; // > 0 while the background thread owns the bitmap
+        volatile boolean redraw; // the target changed while the bitmap was owned, the job is abandoned
+        final List<Callback> callbacks = new ArrayList<>(1);
+    }
+
+    // one background thread for all the snapshots, jobs run in order
+    private static Executor sRasterExecutor = null;
+
+    private long mMaxBytes = DEFAULT_MAX_BYTES;
+    private long mMaxPoolBytes = DEFAULT_MAX_POOL_BYTES;
+    // least recently used first
+    private final List<Entry> mEntries = new ArrayList<>();
+    private final List<Bitmap> mPool = new ArrayList<>();
+    private final Canvas mCanvas = new Canvas();
+    // only used on the raster thread
+    private final Canvas mRasterCanvas = new Canvas();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // rasterized entries waiting for the next frame
+    private final List<Entry> mReady = new ArrayList<>();
+    private final FrameTicker mDeliverTicker = new FrameTicker(new FrameTicker.Callback() {
+        @Override
+        public boolean onFrame(long frameTimeNanos) {
+            deliverReady();
+            return false;
+        }
+    });
+
+    private SnapshotCache() {
+    }
+
+    /**
+     * the budget for snapshots no snake uses any more, snapshots in use are never evicted
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.mMaxBytes = maxBytes;
+        trimToSize();
+    }
+
+    /**
+     * the budget for the bitmaps of evicted snapshots kept for reuse, 0 to recycle them at once
+     */
+    public void setMaxPoolBytes(long maxPoolBytes) {
+        this.mMaxPoolBytes = maxPoolBytes;
+        trimToSize();
+    }
+
+    public void clear() {
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            if (mEntries.get(i).refCount <= 0 && mEntries.get(i).pendingJobs == 0)
+                mEntries.remove(i).bitmap.recycle();
+        }
+        for (Bitmap bitmap : mPool)
+            bitmap.recycle();
+        mPool.clear();
+    }
+
+    /**
+     * @return number of snapshots referenced by at least one snake
+     */
+    public int getLiveSnapshotCount() {
+        int count = 0;
+        for (int i = 0; i < mEntries.size(); i++) {
+            if (mEntries.get(i).refCount > 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of bitmaps held by the cache, in use, idle or pooled
+     */
+    public int getBitmapCount() {
+        return mEntries.size() + mPool.size();
+    }
+
+    /**
+     * get a snapshot of the target at its current size with rounded corners, the caller owns
+     * one reference and must {@link #release(Bitmap)} it. see {@link #waitFor} before showing it
+     *
+     * @param async build a missing or stale snapshot on the background thread
+     * @return null if the target is not laid out yet
+     */
+    Bitmap acquire(View target, float cornerRadius, boolean async) {
+        int width = target.getWidth();
+        int height = target.getHeight();
+        if (width <= 0 || height <= 0)
+            return null;
+        Entry entry = find(target, width, height, cornerRadius);
+        boolean stale;
+        if (null != entry) {
+            mEntries.remove(entry);
+            mEntries.add(entry);
+            // an idle snapshot may be stale, redraw it before it is used again
+            stale = entry.refCount <= 0;
+        } else {
+            entry = new Entry();
+            entry.target = new WeakReference<>(target);
+            entry.width = width;
+            entry.height = height;
+            entry.cornerRadius = cornerRadius;
+            entry.bitmap = obtainBitmap(width, height);
+            mEntries.add(entry);
+            stale = true;
+        }
+        entry.refCount++;
+        if (stale)
+            draw(target, entry, async);
+        trimToSize();
+        return entry.bitmap;
+    }
+
+    /**
+     * a snapshot being drawn on the background thread must not be shown yet
+     *
+     * @return true if the snapshot is pending, the callback is then called on the frame after
+     * it is done
+     */
+    boolean waitFor(Bitmap bitmap, Callback callback) {
+        Entry entry = find(bitmap);
+        if (null == entry || entry.pendingJobs == 0)
+            return false;
+        if (!entry.callbacks.contains(callback))
+            entry.callbacks.add(callback);
+        return true;
+    }
+
+    /**
+     * stop waiting for asynchronous snapshots
+     */
+    void removeCallback(Callback callback) {
+        for (Entry entry : mEntries)
+            entry.callbacks.remove(callback);
+    }
+
+    /**
+     * redraw the target into the snapshot it already owns, every snake sharing it sees the change
+     */
+    void refresh(View target, Bitmap bitmap) {
+        Entry entry = find(bitmap);
+        if (null != entry)
+            draw(target, entry, false);
+    }
+
+    /**
+     * redraw only the dirty part of the target, in target coordinates, into the snapshot
+     */
+    void refresh(View target, Bitmap bitmap, Rect dirty) {
+        Entry entry = find(bitmap);
+        if (null == entry)
+            return;
+        if (entry.pendingJobs > 0 || entry.cornerRadius > 0) {
+            // the background thread owns the bitmap, or the corners need masking again
+            draw(target, entry, entry.pendingJobs > 0);
+            return;
+        }
+        mCanvas.setBitmap(bitmap);
+        mCanvas.save();
+        mCanvas.clipRect(dirty);
+        mCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
+        mCanvas.translate(-target.getScrollX(), -target.getScrollY());
+        target.draw(mCanvas);
+        mCanvas.restore();
+        mCanvas.setBitmap(null);
+    }
+
+    void release(Bitmap bitmap) {
+        if (null == bitmap) return;
+        Entry entry = find(bitmap);
+        if (null == entry) return;
+        if (entry.refCount <= 0) {
+            // released more often than acquired, the count would let another snake's snapshot go
+            if (BuildConfig.DEBUG)
+                Log.w("SnapshotCache", "snapshot released without a reference: " + bitmap);
+            return;
+        }
+        entry.refCount--;
+        trimToSize();
+    }
+
+    private Entry find(View target, int width, int height, float cornerRadius) {
+        for (Entry entry : mEntries) {
+            if (entry.target.get() == target && entry.width == width && entry.height == height
+                    && entry.cornerRadius == cornerRadius)
+                return entry;
+        }
+        return null;
+    }
+
+    private Entry find(Bitmap bitmap) {
+        if (null == bitmap) return null;
+        for (Entry entry : mEntries) {
+            if (entry.bitmap == bitmap)
+                return entry;
+        }
+        return null;
+    }
+
+    /**
+     * draw the whole target into the entry. a snapshot the background thread is working on is
+     * drawn again once the job in progress is done
+     */
+    private void draw(View target, final Entry entry, boolean async) {
+        if (entry.pendingJobs > 0) {
+            entry.redraw = true;
+            return;
+        }
+        Bitmap bitmap = entry.bitmap;
+        bitmap.eraseColor(0);
+        mCanvas.setBitmap(bitmap);
+        mCanvas.save();
+        mCanvas.translate(-target.getScrollX(), -target.getScrollY());
+        target.draw(mCanvas);
+        mCanvas.restore();
+        if (!async || entry.cornerRadius <= 0) {
+            maskCorners(mCanvas, entry);
+            mCanvas.setBitmap(null);
+            return;
+        }
+        mCanvas.setBitmap(null);
+        entry.pendingJobs++;
+        getRasterExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!entry.redraw) {
+                    mRasterCanvas.setBitmap(entry.bitmap);
+                    maskCorners(mRasterCanvas, entry);
+                    mRasterCanvas.setBitmap(null);
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRasterized(entry);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onRasterized(Entry entry) {
+        entry.pendingJobs--;
+        if (entry.redraw) {
+            entry.redraw = false;
+            View target = entry.target.get();
+            if (null != target && ViewCompat.isAttachedToWindow(target)) {
+                draw(target, entry, true);
+                return;
+            }
+            // the target is gone, the last pixels it drew are masked here
+            mCanvas.setBitmap(entry.bitmap);
+            maskCorners(mCanvas, entry);
+            mCanvas.setBitmap(null);
+        }
+        // snapshots finished within one frame are handed over together
+        mReady.add(entry);
+        mDeliverTicker.start();
+    }
+
+    private static void maskCorners(Canvas canvas, Entry entry) {
+        CornerMaskCache.getInstance().apply(canvas, entry.width, entry.height,
+                entry.cornerRadius, CornerMaskCache.CORNER_ALL);
+    }
+
+    private void deliverReady() {
+        for (int i = 0; i < mReady.size(); i++) {
+            Entry entry = mReady.get(i);
+            if (entry.pendingJobs > 0)
+                continue; // redrawn again meanwhile, delivered when that is done
+            while (!entry.callbacks.isEmpty())
+                entry.callbacks.remove(entry.callbacks.size() - 1).onSnapshotReady(entry.bitmap);
+        }
+        mReady.clear();
+        trimToSize();
+    }
+
+    private static Executor getRasterExecutor() {
+        if (null == sRasterExecutor) {
+            sRasterExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "SnakeSnapshot");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sRasterExecutor;
+    }
+
+    private Bitmap obtainBitmap(int width, int height) {
+        for (int i = 0; i < mPool.size(); i++) {
+            Bitmap bitmap = mPool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                mPool.remove(i);
+                return bitmap;
+            }
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            long needed = (long) width * height * 4;
+            for (int i = 0; i < mPool.size(); i++) {
+                Bitmap bitmap = mPool.get(i);
+                if (bitmap.getAllocationByteCount() >= needed) {
+                    mPool.remove(i);
+                    bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private void trimToSize() {
+        long idleBytes = 0;
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            Entry entry = mEntries.get(i);
+            if (entry.refCount > 0 || entry.pendingJobs > 0)
+                continue;
+            // nobody can hit a snapshot of a collected view again, reuse its bitmap
+            if (null == entry.target.get()) {
+                mEntries.remove(i);
+                mPool.add(entry.bitmap);
+            } else {
+                idleBytes += getByteCount(entry.bitmap);
+            }
+        }
+        // evict the least recently used idle snapshots into the pool
+        for (int i = 0; i < mEntries.size() && idleBytes > mMaxBytes; ) {
+            Entry entry = mEntries.get(i);
+            if (entry.refCount <= 0 && entry.pendingJobs == 0) {
+                mEntries.remove(i);
+                idleBytes -= getByteCount(entry.bitmap);
+                mPool.add(entry.bitmap);
+                continue;
+            }
+            i++;
+        }
+        // then drop the oldest pooled bitmaps
+        long poolBytes = 0;
+        for (Bitmap bitmap : mPool)
+            poolBytes += getByteCount(bitmap);
+        while (poolBytes > mMaxPoolBytes && !mPool.isEmpty()) {
+            Bitmap bitmap = mPool.remove(0);
+            poolBytes -= getByteCount(bitmap);
+            bitmap.recycle();
+        }
+    }
+
+    static int getByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+            return bitmap.getAllocationByteCount();
+        return bitmap.getByteCount();
+    }
+}
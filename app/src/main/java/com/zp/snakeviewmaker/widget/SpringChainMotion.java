@@ -0,0 +1,202 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * a chain of damped springs integrated with verlet at a fixed timestep.
+ * every segment is pulled towards the next one. with critical damping each link settles without
+ * overshoot, so the wave does not whip up along long chains. the head follows the finger while dragging
+ * and is pulled back to the rest position with the release velocity of the finger after release.
+ * all the state lives in primitive arrays, nothing is allocated per frame
+ */
+
+public class SpringChainMotion implements SnakeMotion {
+
+    // about 70ms of lag per segment, close to the trail motion, critically damped
+    private static final float DEFAULT_STIFFNESS = 200f;
+    private static final float DEFAULT_DAMPING = 28f;
+    private static final float STEP = 1f / 240;        // seconds
+    private static final int MAX_STEPS_PER_UPDATE = 16;  // don't spiral after a long pause
+    private static final float REST_DISTANCE = 0.5f;   // pixels
+    private static final float REST_SPEED = 5f;        // pixels per second
+
+    private float mStiffness = DEFAULT_STIFFNESS;
+    private float mDamping = DEFAULT_DAMPING;
+
+    private int mCount = 0;
+    private float[] mX = new float[0];
+    private float[] mY = new float[0];
+    private float[] mPrevX = new float[0];
+    private float[] mPrevY = new float[0];
+
+    private boolean mDragging = false;
+    private boolean mAtRest = true;
+    private float mFingerX, mFingerY;
+    private float mRestX, mRestY;
+    private long mLastTime = -1;
+    private float mAccumulator = 0;
+
+    public SpringChainMotion() {
+    }
+
+    /**
+     * @param stiffness spring constant per unit mass, 1/s^2. higher is snappier
+     * @param damping   damping per unit mass, 1/s. 2 * sqrt(stiffness) is critical damping,
+     *                  lower values wobble and make long chains whip
+     */
+    public SpringChainMotion(float stiffness, float damping) {
+        setStiffness(stiffness);
+        setDamping(damping);
+    }
+
+    public SpringChainMotion setStiffness(float stiffness) {
+        this.mStiffness = Math.max(0, stiffness);
+        return this;
+    }
+
+    public SpringChainMotion setDamping(float damping) {
+        this.mDamping = Math.max(0, damping);
+        return this;
+    }
+
+    @Override
+    public void reset(int count, float x, float y) {
+        if (mCount != count) {
+            mCount = count;
+            mX = new float[count];
+            mY = new float[count];
+            mPrevX = new float[count];
+            mPrevY = new float[count];
+        }
+        for (int i = 0; i < count; i++) {
+            mX[i] = mPrevX[i] = x;
+            mY[i] = mPrevY[i] = y;
+        }
+        mRestX = mFingerX = x;
+        mRestY = mFingerY = y;
+        mDragging = false;
+        mAtRest = true;
+        mLastTime = -1;
+        mAccumulator = 0;
+    }
+
+    @Override
+    public void startDrag(long time, float restX, float restY) {
+        // a drag may interrupt a release in progress, the chain goes on from where it is
+        if (mCount == 0)
+            return;
+        if (mAtRest)
+            reset(mCount, restX, restY);
+        mRestX = restX;
+        mRestY = restY;
+        mFingerX = mX[mCount - 1];
+        mFingerY = mY[mCount - 1];
+        mDragging = true;
+        mAtRest = false;
+        mLastTime = time;
+        mAccumulator = 0;
+    }
+
+    @Override
+    public void addSample(long time, float x, float y) {
+        mFingerX = x;
+        mFingerY = y;
+    }
+
+    @Override
+    public void release(long time, float restX, float restY, float velocityX, float velocityY) {
+        if (mCount == 0)
+            return;
+        mDragging = false;
+        mRestX = restX;
+        mRestY = restY;
+        // hand the finger velocity over to the head
+        int head = mCount - 1;
+        mPrevX[head] = mX[head] - velocityX * STEP;
+        mPrevY[head] = mY[head] - velocityY * STEP;
+    }
+
+    @Override
+    public int update(long time, float[] outX, float[] outY) {
+        if (mAtRest || mCount == 0)
+            return 0;
+        if (mLastTime < 0)
+            mLastTime = time;
+        mAccumulator += (time - mLastTime) / 1000f;
+        mLastTime = time;
+        int steps = 0;
+        while (mAccumulator >= STEP && steps < MAX_STEPS_PER_UPDATE) {
+            step();
+            mAccumulator -= STEP;
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_UPDATE)
+            mAccumulator = 0;
+        if (!mDragging && isSettled()) {
+            for (int i = 0; i < mCount; i++) {
+                mX[i] = mPrevX[i] = mRestX;
+                mY[i] = mPrevY[i] = mRestY;
+            }
+            mAtRest = true;
+        }
+        System.arraycopy(mX, 0, outX, 0, mCount);
+        System.arraycopy(mY, 0, outY, 0, mCount);
+        return mCount;
+    }
+
+    /**
+     * one verlet step, from the head to the tail so that each segment sees where its
+     * leader is now
+     */
+    private void step() {
+        float dt2 = STEP * STEP;
+        int head = mCount - 1;
+        // velocities are kept as the distance moved in the last step
+        float leaderX = mRestX, leaderY = mRestY;
+        for (int i = head; i >= 0; i--) {
+            float x = mX[i];
+            float y = mY[i];
+            float vx = x - mPrevX[i];
+            float vy = y - mPrevY[i];
+            if (i == head && mDragging) {
+                // the head is pinned to the finger
+                mX[i] = mFingerX;
+                mY[i] = mFingerY;
+            } else {
+                float ax = (leaderX - x) * mStiffness * dt2 - vx * mDamping * STEP;
+                float ay = (leaderY - y) * mStiffness * dt2 - vy * mDamping * STEP;
+                mX[i] = x + vx + ax;
+                mY[i] = y + vy + ay;
+            }
+            mPrevX[i] = x;
+            mPrevY[i] = y;
+            leaderX = mX[i];
+            leaderY = mY[i];
+        }
+    }
+
+    private boolean isSettled() {
+        float maxMove = REST_SPEED * STEP;
+        for (int i = 0; i < mCount; i++) {
+            if (Math.abs(mX[i] - mRestX) > REST_DISTANCE || Math.abs(mY[i] - mRestY) > REST_DISTANCE)
+                return false;
+            if (Math.abs(mX[i] - mPrevX[i]) > maxMove || Math.abs(mY[i] - mPrevY[i]) > maxMove)
+                return false;
+        }
+        return true;
+    }
+}
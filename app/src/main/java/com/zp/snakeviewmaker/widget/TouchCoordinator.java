@@ -0,0 +1,266 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.os.Build;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.zp.snakeviewmaker.R;
+
+/**
+ * one touch listener per attach layout for all the snakes in multi-touch mode. every finger is
+ * routed to the snake whose head it went down on, wherever the view system delivers it, e.g. a
+ * single view snake which is already touched receives every new finger inside its bounds.
+ * the snakes share one shield, added below all of them, which is raised while any of them moves.
+ * the coordinator is kept in a tag of the parent and goes away with it
+ * the state of each pointer lives in arrays indexed by pointer id, and each event is handled in
+ * one pass over its pointers
+ */
+
+class TouchCoordinator implements View.OnTouchListener {
+
+    private static final int MAX_POINTER_ID = 31; // the highest id a MotionEvent pointer can have
+    private static final int NO_SNAKE = -1;
+
+    private final ViewGroup mParent;
+    private final View mShieldView;
+    private int mShieldHolds = 0;
+
+    // per snake slot, a slot is reused once its snake is gone
+    private SnakeViewMaker[] mMakers = new SnakeViewMaker[4];
+    private int[] mActivePointers = new int[4];     // the pointer which drags the snake
+    private long[] mAttachOrders = new long[4];      // the latest attached snake is on top
+    private VelocityTracker[] mTrackers = new VelocityTracker[4]; // for the events of its head view
+    private int mMakerCount = 0;
+    private long mNextAttachOrder = 0;
+
+    // per pointer id, the slot of the snake it went down on
+    private final int[] mPointerSnakes = new int[MAX_POINTER_ID + 1];
+
+    private TouchCoordinator(ViewGroup parent) {
+        this.mParent = parent;
+        mShieldView = new View(parent.getContext());
+        mShieldView.setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        mShieldView.setClickable(true);
+        mShieldView.setFocusableInTouchMode(true);
+        mShieldView.setVisibility(View.INVISIBLE);
+        // added before the segments of any snake, so that it never covers a head
+        parent.addView(mShieldView);
+        for (int i = 0; i < mPointerSnakes.length; i++)
+            mPointerSnakes[i] = NO_SNAKE;
+        for (int i = 0; i < mActivePointers.length; i++)
+            mActivePointers[i] = MotionEvent.INVALID_POINTER_ID;
+    }
+
+    /**
+     * call before the segments of the snake are added to the parent
+     *
+     * @return the coordinator the maker has been added to, pass it to {@link #unregister}
+     */
+    static TouchCoordinator register(ViewGroup parent, SnakeViewMaker maker, float elevation) {
+        TouchCoordinator coordinator = (TouchCoordinator) parent.getTag(R.id.snake_touch_coordinator);
+        if (null == coordinator) {
+            coordinator = new TouchCoordinator(parent);
+            parent.setTag(R.id.snake_touch_coordinator, coordinator);
+        }
+        coordinator.add(maker, elevation);
+        return coordinator;
+    }
+
+    void unregister(SnakeViewMaker maker) {
+        int slot = indexOf(maker);
+        if (slot == NO_SNAKE)
+            return;
+        for (int id = 0; id <= MAX_POINTER_ID; id++) {
+            if (mPointerSnakes[id] == slot)
+                mPointerSnakes[id] = NO_SNAKE;
+        }
+        mMakers[slot] = null;
+        mActivePointers[slot] = MotionEvent.INVALID_POINTER_ID;
+        if (null != mTrackers[slot]) {
+            mTrackers[slot].recycle();
+            mTrackers[slot] = null;
+        }
+        if (--mMakerCount == 0) {
+            mParent.removeView(mShieldView);
+            mParent.setTag(R.id.snake_touch_coordinator, null);
+        }
+    }
+
+    /**
+     * balanced calls, the shield is shown while any snake holds it
+     */
+    void holdShield(boolean hold) {
+        mShieldHolds += hold ? 1 : -1;
+        mShieldView.setVisibility(mShieldHolds > 0 ? View.VISIBLE : View.INVISIBLE);
+    }
+
+    private void add(SnakeViewMaker maker, float elevation) {
+        int slot = indexOf(maker);
+        if (slot == NO_SNAKE) {
+            slot = indexOf(null);
+            if (slot == NO_SNAKE) {
+                slot = mMakers.length;
+                grow(slot * 2);
+            }
+            mMakers[slot] = maker;
+            mActivePointers[slot] = MotionEvent.INVALID_POINTER_ID;
+            mMakerCount++;
+        }
+        mAttachOrders[slot] = mNextAttachOrder++;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && mShieldView.getElevation() < elevation) {
+            mShieldView.setElevation(elevation);
+        }
+    }
+
+    private void grow(int capacity) {
+        SnakeViewMaker[] makers = new SnakeViewMaker[capacity];
+        int[] activePointers = new int[capacity];
+        long[] attachOrders = new long[capacity];
+        VelocityTracker[] trackers = new VelocityTracker[capacity];
+        int size = mMakers.length;
+        System.arraycopy(mMakers, 0, makers, 0, size);
+        System.arraycopy(mActivePointers, 0, activePointers, 0, size);
+        System.arraycopy(mAttachOrders, 0, attachOrders, 0, size);
+        System.arraycopy(mTrackers, 0, trackers, 0, size);
+        for (int i = size; i < capacity; i++)
+            activePointers[i] = MotionEvent.INVALID_POINTER_ID;
+        mMakers = makers;
+        mActivePointers = activePointers;
+        mAttachOrders = attachOrders;
+        mTrackers = trackers;
+    }
+
+    private int indexOf(SnakeViewMaker maker) {
+        for (int i = 0; i < mMakers.length; i++) {
+            if (mMakers[i] == maker)
+                return i;
+        }
+        return NO_SNAKE;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        float rawOffsetX = event.getRawX() - event.getX();
+        float rawOffsetY = event.getRawY() - event.getY();
+        // one tracker per head view, a down clears the tracker it is added to
+        VelocityTracker tracker = null;
+        int source = findHeadView(v);
+        if (source != NO_SNAKE) {
+            if (null == mTrackers[source])
+                mTrackers[source] = VelocityTracker.obtain();
+            tracker = mTrackers[source];
+            SnakeViewMaker.addRawMovement(tracker, event, rawOffsetX, rawOffsetY);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                onPointerDown(event, event.getActionIndex(), rawOffsetX, rawOffsetY);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                for (int i = 0, n = event.getPointerCount(); i < n; i++) {
+                    int id = event.getPointerId(i);
+                    int slot = mPointerSnakes[id];
+                    if (slot != NO_SNAKE && mActivePointers[slot] == id)
+                        mMakers[slot].moveTouch(event, i, rawOffsetX, rawOffsetY);
+                }
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                onPointerUp(event, event.getActionIndex(), rawOffsetX, rawOffsetY, tracker, true);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                for (int i = 0, n = event.getPointerCount(); i < n; i++)
+                    onPointerUp(event, i, rawOffsetX, rawOffsetY, tracker, false);
+                break;
+        }
+        // clicks are performed here, the head views never see the events
+        return true;
+    }
+
+    private void onPointerDown(MotionEvent event, int index, float rawOffsetX, float rawOffsetY) {
+        int id = event.getPointerId(index);
+        float rawX = event.getX(index) + rawOffsetX;
+        float rawY = event.getY(index) + rawOffsetY;
+        int slot = findHeadAt(rawX, rawY);
+        mPointerSnakes[id] = slot;
+        if (slot == NO_SNAKE)
+            return;
+        // a second finger on a snake which is already dragged only takes over when the first
+        // goes up. the same id going down again means its previous touch was never finished
+        int active = mActivePointers[slot];
+        if (active == MotionEvent.INVALID_POINTER_ID || active == id) {
+            mActivePointers[slot] = id;
+            mMakers[slot].startTouch(event.getEventTime(), rawX, rawY);
+        }
+    }
+
+    private void onPointerUp(MotionEvent event, int index, float rawOffsetX, float rawOffsetY,
+                             VelocityTracker tracker, boolean click) {
+        int id = event.getPointerId(index);
+        int slot = mPointerSnakes[id];
+        mPointerSnakes[id] = NO_SNAKE;
+        if (slot == NO_SNAKE || mActivePointers[slot] != id)
+            return;
+        // another finger on the same snake takes the drag over
+        for (int other = 0; other <= MAX_POINTER_ID; other++) {
+            if (mPointerSnakes[other] == slot) {
+                mActivePointers[slot] = other;
+                return;
+            }
+        }
+        mActivePointers[slot] = MotionEvent.INVALID_POINTER_ID;
+        float velocityX = 0;
+        float velocityY = 0;
+        if (null != tracker) {
+            tracker.computeCurrentVelocity(1000, SnakeMath.MAX_RELEASE_VELOCITY);
+            velocityX = tracker.getXVelocity(id);
+            velocityY = tracker.getYVelocity(id);
+        }
+        SnakeViewMaker maker = mMakers[slot];
+        boolean dragged = maker.endTouch(event.getEventTime(), event.getX(index) + rawOffsetX,
+                event.getY(index) + rawOffsetY, velocityX, velocityY);
+        if (!dragged && click)
+            maker.performHeadClick();
+    }
+
+    /**
+     * @return the slot of the topmost snake whose head is under the raw point, or NO_SNAKE
+     */
+    private int findHeadAt(float rawX, float rawY) {
+        int found = NO_SNAKE;
+        for (int i = 0; i < mMakers.length; i++) {
+            if (null != mMakers[i] && (found == NO_SNAKE || mAttachOrders[i] > mAttachOrders[found])
+                    && mMakers[i].isHeadAt(rawX, rawY))
+                found = i;
+        }
+        return found;
+    }
+
+    private int findHeadView(View view) {
+        for (int i = 0; i < mMakers.length; i++) {
+            if (null != mMakers[i] && mMakers[i].getHeadView() == view)
+                return i;
+        }
+        return NO_SNAKE;
+    }
+}
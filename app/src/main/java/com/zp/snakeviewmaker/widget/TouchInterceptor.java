@@ -0,0 +1,266 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Build;
+import android.view.ActionMode;
+import android.view.KeyEvent;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.view.SearchEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.Window;
+import android.view.WindowManager;
+import android.view.accessibility.AccessibilityEvent;
+
+/**
+ * the shield of the overlay mode, no view is put over the layout. while it is on, the callback
+ * of the window is wrapped and every gesture which starts outside the target is consumed before
+ * it reaches the views, a gesture on the target grabs the snake again. motion event splitting
+ * can also be turned off on the layouts from the target up to the attach layout, so the other
+ * fingers of a drag join the gesture of the target, which ignores them. the previous settings
+ * and the window callback are restored when it is turned off
+ */
+
+class TouchInterceptor implements Window.Callback {
+
+    private ViewGroup[] mGroups = new ViewGroup[8];
+    private boolean[] mSplitting = new boolean[8];
+    private int mCount = 0;
+
+    private Window mWindow = null;
+    private Window.Callback mWrapped = null;
+    private View mTarget = null;
+    private boolean mOn = false;
+    private boolean mBlocking = false; // the gesture in progress is consumed
+    private final int[] mLocation = new int[2];
+
+    /**
+     * @param joinFingers turn motion event splitting off, the other fingers join the drag
+     */
+    void start(View target, ViewGroup root, boolean joinFingers) {
+        stop();
+        mOn = true;
+        mTarget = target;
+        wrapWindowCallback(root.getContext());
+        if (!joinFingers)
+            return;
+        ViewParent parent = target.getParent();
+        while (parent instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) parent;
+            if (mCount == mGroups.length) {
+                ViewGroup[] groups = new ViewGroup[mCount * 2];
+                boolean[] splitting = new boolean[mCount * 2];
+                System.arraycopy(mGroups, 0, groups, 0, mCount);
+                System.arraycopy(mSplitting, 0, splitting, 0, mCount);
+                mGroups = groups;
+                mSplitting = splitting;
+            }
+            mGroups[mCount] = group;
+            mSplitting[mCount] = group.isMotionEventSplittingEnabled();
+            mCount++;
+            // a layout only reads the setting when a finger goes down, it can change mid-gesture
+            group.setMotionEventSplittingEnabled(false);
+            if (group == root)
+                break;
+            parent = group.getParent();
+        }
+    }
+
+    void stop() {
+        for (int i = 0; i < mCount; i++) {
+            mGroups[i].setMotionEventSplittingEnabled(mSplitting[i]);
+            mGroups[i] = null;
+        }
+        mCount = 0;
+        mOn = false;
+        mTarget = null;
+        // a gesture which is being consumed is consumed to its end
+        if (!mBlocking)
+            unwrapWindowCallback();
+    }
+
+    boolean isOn() {
+        return mOn || null != mWindow;
+    }
+
+    private void wrapWindowCallback(Context context) {
+        if (null != mWindow)
+            return;
+        while (context instanceof ContextWrapper && !(context instanceof Activity))
+            context = ((ContextWrapper) context).getBaseContext();
+        if (!(context instanceof Activity))
+            return; // no window to guard, the taps around the snake go through
+        mWindow = ((Activity) context).getWindow();
+        mWrapped = mWindow.getCallback();
+        mWindow.setCallback(this);
+    }
+
+    private void unwrapWindowCallback() {
+        if (null == mWindow)
+            return;
+        // wrapped again by someone else meanwhile, this stays in their chain and passes everything
+        if (mWindow.getCallback() == this) {
+            mWindow.setCallback(mWrapped);
+            mWindow = null;
+            mWrapped = null;
+        }
+    }
+
+    private boolean isOnTarget(MotionEvent event) {
+        mTarget.getLocationOnScreen(mLocation);
+        float x = event.getRawX() - mLocation[0];
+        float y = event.getRawY() - mLocation[1];
+        return x >= 0 && y >= 0 && x < mTarget.getWidth() && y < mTarget.getHeight();
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN)
+            mBlocking = mOn && !isOnTarget(event);
+        if (!mBlocking)
+            return null != mWrapped && mWrapped.dispatchTouchEvent(event);
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mBlocking = false;
+            if (!mOn)
+                unwrapWindowCallback();
+        }
+        return true;
+    }
+
+    // everything else goes to the wrapped callback
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return null != mWrapped && mWrapped.dispatchKeyEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyShortcutEvent(KeyEvent event) {
+        return null != mWrapped && mWrapped.dispatchKeyShortcutEvent(event);
+    }
+
+    @Override
+    public boolean dispatchTrackballEvent(MotionEvent event) {
+        return null != mWrapped && mWrapped.dispatchTrackballEvent(event);
+    }
+
+    @Override
+    public boolean dispatchGenericMotionEvent(MotionEvent event) {
+        return null != mWrapped && mWrapped.dispatchGenericMotionEvent(event);
+    }
+
+    @Override
+    public boolean dispatchPopulateAccessibilityEvent(AccessibilityEvent event) {
+        return null != mWrapped && mWrapped.dispatchPopulateAccessibilityEvent(event);
+    }
+
+    @Override
+    public View onCreatePanelView(int featureId) {
+        return null == mWrapped ? null : mWrapped.onCreatePanelView(featureId);
+    }
+
+    @Override
+    public boolean onCreatePanelMenu(int featureId, Menu menu) {
+        return null != mWrapped && mWrapped.onCreatePanelMenu(featureId, menu);
+    }
+
+    @Override
+    public boolean onPreparePanel(int featureId, View view, Menu menu) {
+        return null != mWrapped && mWrapped.onPreparePanel(featureId, view, menu);
+    }
+
+    @Override
+    public boolean onMenuOpened(int featureId, Menu menu) {
+        return null != mWrapped && mWrapped.onMenuOpened(featureId, menu);
+    }
+
+    @Override
+    public boolean onMenuItemSelected(int featureId, MenuItem item) {
+        return null != mWrapped && mWrapped.onMenuItemSelected(featureId, item);
+    }
+
+    @Override
+    public void onWindowAttributesChanged(WindowManager.LayoutParams attrs) {
+        if (null != mWrapped) mWrapped.onWindowAttributesChanged(attrs);
+    }
+
+    @Override
+    public void onContentChanged() {
+        if (null != mWrapped) mWrapped.onContentChanged();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        if (null != mWrapped) mWrapped.onWindowFocusChanged(hasFocus);
+    }
+
+    @Override
+    public void onAttachedToWindow() {
+        if (null != mWrapped) mWrapped.onAttachedToWindow();
+    }
+
+    @Override
+    public void onDetachedFromWindow() {
+        if (null != mWrapped) mWrapped.onDetachedFromWindow();
+    }
+
+    @Override
+    public void onPanelClosed(int featureId, Menu menu) {
+        if (null != mWrapped) mWrapped.onPanelClosed(featureId, menu);
+    }
+
+    @Override
+    public boolean onSearchRequested() {
+        return null != mWrapped && mWrapped.onSearchRequested();
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    @Override
+    public boolean onSearchRequested(SearchEvent searchEvent) {
+        return null != mWrapped && mWrapped.onSearchRequested(searchEvent);
+    }
+
+    @Override
+    public ActionMode onWindowStartingActionMode(ActionMode.Callback callback) {
+        return null == mWrapped ? null : mWrapped.onWindowStartingActionMode(callback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    @Override
+    public ActionMode onWindowStartingActionMode(ActionMode.Callback callback, int type) {
+        return null == mWrapped ? null : mWrapped.onWindowStartingActionMode(callback, type);
+    }
+
+    @Override
+    public void onActionModeStarted(ActionMode mode) {
+        if (null != mWrapped) mWrapped.onActionModeStarted(mode);
+    }
+
+    @Override
+    public void onActionModeFinished(ActionMode mode) {
+        if (null != mWrapped) mWrapped.onActionModeFinished(mode);
+    }
+}
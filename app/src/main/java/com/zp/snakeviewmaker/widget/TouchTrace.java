@@ -0,0 +1,213 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * the touch events received by a snake, kept in primitive arrays and saved as a compact binary
+ * trace: a header, then 13 bytes per event (action, time since the previous event, raw x, raw y),
+ * an up is followed by the 8 bytes of its release velocity.
+ * record one with {@link SnakeViewMaker#setTouchRecorder}, replay it with {@link TouchTracePlayer}.
+ * plain java
+ */
+
+public final class TouchTrace {
+
+    private static final int MAGIC = 0x534e4b54; // "SNKT"
+    private static final int VERSION = 2; // 1 had no release velocity
+    private static final int ACTION_UP = 1; // MotionEvent.ACTION_UP, kept here to stay plain java
+
+    private byte[] mActions = new byte[64];
+    private long[] mTimes = new long[64];
+    private float[] mRawXs = new float[64];
+    private float[] mRawYs = new float[64];
+    private float[] mVelocityXs = new float[64];
+    private float[] mVelocityYs = new float[64];
+    private int mSize = 0;
+
+    // how raw coordinates map to segment positions: position = raw - offset
+    private float mOffsetX, mOffsetY;
+    private float mRestX, mRestY;
+    private int mTargetWidth, mTargetHeight;
+
+    /**
+     * @param action a MotionEvent action, ACTION_DOWN, ACTION_MOVE or ACTION_UP
+     */
+    public void add(int action, long time, float rawX, float rawY) {
+        add(action, time, rawX, rawY, Float.NaN, Float.NaN);
+    }
+
+    /**
+     * @param velocityX the release velocity the snake got at an ACTION_UP, in pixels per second
+     */
+    public void add(int action, long time, float rawX, float rawY, float velocityX, float velocityY) {
+        if (mSize == mTimes.length) {
+            int capacity = mSize * 2;
+            mActions = Arrays.copyOf(mActions, capacity);
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mRawXs = Arrays.copyOf(mRawXs, capacity);
+            mRawYs = Arrays.copyOf(mRawYs, capacity);
+            mVelocityXs = Arrays.copyOf(mVelocityXs, capacity);
+            mVelocityYs = Arrays.copyOf(mVelocityYs, capacity);
+        }
+        mActions[mSize] = (byte) action;
+        mTimes[mSize] = time;
+        mRawXs[mSize] = rawX;
+        mRawYs[mSize] = rawY;
+        mVelocityXs[mSize] = velocityX;
+        mVelocityYs[mSize] = velocityY;
+        mSize++;
+    }
+
+    /**
+     * where the snake rests and how raw coordinates map to segment positions
+     */
+    public void setGeometry(float restX, float restY, float offsetX, float offsetY,
+                            int targetWidth, int targetHeight) {
+        this.mRestX = restX;
+        this.mRestY = restY;
+        this.mOffsetX = offsetX;
+        this.mOffsetY = offsetY;
+        this.mTargetWidth = targetWidth;
+        this.mTargetHeight = targetHeight;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getAction(int index) {
+        return mActions[index];
+    }
+
+    public long getTime(int index) {
+        return mTimes[index];
+    }
+
+    public float getRawX(int index) {
+        return mRawXs[index];
+    }
+
+    public float getRawY(int index) {
+        return mRawYs[index];
+    }
+
+    /**
+     * @return the recorded release velocity of an up, NaN if it is unknown, e.g. in version 1 traces
+     */
+    public float getVelocityX(int index) {
+        return mVelocityXs[index];
+    }
+
+    public float getVelocityY(int index) {
+        return mVelocityYs[index];
+    }
+
+    public float getRestX() {
+        return mRestX;
+    }
+
+    public float getRestY() {
+        return mRestY;
+    }
+
+    public float getOffsetX() {
+        return mOffsetX;
+    }
+
+    public float getOffsetY() {
+        return mOffsetY;
+    }
+
+    public int getTargetWidth() {
+        return mTargetWidth;
+    }
+
+    public int getTargetHeight() {
+        return mTargetHeight;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeFloat(mRestX);
+        data.writeFloat(mRestY);
+        data.writeFloat(mOffsetX);
+        data.writeFloat(mOffsetY);
+        data.writeInt(mTargetWidth);
+        data.writeInt(mTargetHeight);
+        data.writeInt(mSize);
+        data.writeLong(mSize == 0 ? 0 : mTimes[0]);
+        for (int i = 0; i < mSize; i++) {
+            data.writeByte(mActions[i]);
+            // events are in time order and close together, the delta fits in an int
+            data.writeInt(i == 0 ? 0 : (int) (mTimes[i] - mTimes[i - 1]));
+            data.writeFloat(mRawXs[i]);
+            data.writeFloat(mRawYs[i]);
+            if (mActions[i] == ACTION_UP) {
+                data.writeFloat(mVelocityXs[i]);
+                data.writeFloat(mVelocityYs[i]);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * @throws IOException if the stream is not a trace of a known version
+     */
+    public static TouchTrace readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("not a touch trace");
+        int version = data.readInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException("unsupported touch trace version " + version);
+        TouchTrace trace = new TouchTrace();
+        float restX = data.readFloat();
+        float restY = data.readFloat();
+        float offsetX = data.readFloat();
+        float offsetY = data.readFloat();
+        int width = data.readInt();
+        int height = data.readInt();
+        trace.setGeometry(restX, restY, offsetX, offsetY, width, height);
+        int size = data.readInt();
+        long time = data.readLong();
+        for (int i = 0; i < size; i++) {
+            int action = data.readByte();
+            time += data.readInt();
+            float rawX = data.readFloat();
+            float rawY = data.readFloat();
+            if (action == ACTION_UP && version >= 2) {
+                trace.add(action, time, rawX, rawY, data.readFloat(), data.readFloat());
+            } else {
+                trace.add(action, time, rawX, rawY);
+            }
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * replays a {@link TouchTrace} into a motion model on a virtual clock, the same way
+ * SnakeViewMaker feeds it from onTouch, and hands over the segment positions of every frame.
+ * plain java, so trail behaviour can be compared and timed on the jvm without a device
+ */
+
+public class TouchTracePlayer {
+
+    public interface FrameCallback {
+        /**
+         * @param updated segments [0, updated) have moved on this frame, see {@link SnakeMotion#update}
+         */
+        void onFrame(long frameTime, float[] x, float[] y, int updated);
+    }
+
+    // MotionEvent actions, kept here so that the player runs without android
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_UP = 1;
+    private static final int ACTION_MOVE = 2;
+    // frames played after the last event at most, in case the model never comes to rest
+    private static final int MAX_TRAILING_FRAMES = 10000;
+
+    private final TouchTrace mTrace;
+    private final SnakeMotion mMotion;
+    private final int mCount;
+
+    public TouchTracePlayer(TouchTrace trace, SnakeMotion motion, int segmentCount) {
+        this.mTrace = trace;
+        this.mMotion = motion;
+        this.mCount = Math.max(1, segmentCount);
+    }
+
+    /**
+     * play the whole trace, then keep going until the model has nothing left to move
+     *
+     * @param frameInterval virtual frame interval in ms, e.g. 16 for 60Hz
+     * @return number of frames played
+     */
+    public int play(long frameInterval, FrameCallback callback) {
+        float[] x = new float[mCount];
+        float[] y = new float[mCount];
+        int size = mTrace.size();
+        if (size == 0)
+            return 0;
+        float restX = mTrace.getRestX();
+        float restY = mTrace.getRestY();
+        mMotion.reset(mCount, restX, restY);
+        long interval = Math.max(1, frameInterval);
+        long frameTime = mTrace.getTime(0);
+        long downTime = frameTime;
+        boolean moving = false;
+        int next = 0;
+        int frames = 0;
+        int trailingFrames = 0;
+        while (true) {
+            // deliver the events of this frame before it is drawn
+            while (next < size && mTrace.getTime(next) <= frameTime) {
+                long time = mTrace.getTime(next);
+                switch (mTrace.getAction(next)) {
+                    case ACTION_DOWN:
+                        downTime = time;
+                        mMotion.startDrag(time, restX, restY);
+                        break;
+                    case ACTION_MOVE:
+                        if (time - downTime >= SnakeMath.DRAG_START_DELAY) {
+                            mMotion.addSample(time, mTrace.getRawX(next) - mTrace.getOffsetX(),
+                                    mTrace.getRawY(next) - mTrace.getOffsetY());
+                            moving = true;
+                        }
+                        break;
+                    case ACTION_UP:
+                        if (time - downTime >= SnakeMath.DRAG_START_DELAY) {
+                            mMotion.release(time, restX, restY,
+                                    getVelocity(next, true), getVelocity(next, false));
+                            moving = true;
+                        } else if (moving) {
+                            // a tap interrupted a release, the snake is put back at rest
+                            mMotion.reset(mCount, restX, restY);
+                            moving = false;
+                        }
+                        break;
+                }
+                next++;
+            }
+            int updated = moving ? mMotion.update(frameTime, x, y) : 0;
+            if (updated == 0)
+                moving = false;
+            if (moving) {
+                callback.onFrame(frameTime, x, y, updated);
+                frames++;
+            }
+            if (next >= size && (!moving || ++trailingFrames > MAX_TRAILING_FRAMES))
+                break;
+            frameTime += interval;
+        }
+        return frames;
+    }
+
+    /**
+     * the release velocity recorded with the given up event, in pixels per second. traces without
+     * one are estimated from the moves of the last 100ms, a rough stand-in for VelocityTracker
+     */
+    private float getVelocity(int up, boolean horizontal) {
+        float recorded = horizontal ? mTrace.getVelocityX(up) : mTrace.getVelocityY(up);
+        if (!Float.isNaN(recorded))
+            return recorded;
+        long upTime = mTrace.getTime(up);
+        int first = up;
+        while (first > 0 && mTrace.getAction(first - 1) == ACTION_MOVE
+                && upTime - mTrace.getTime(first - 1) <= 100)
+            first--;
+        if (first == up)
+            return 0;
+        long span = upTime - mTrace.getTime(first);
+        if (span <= 0)
+            return 0;
+        float distance = horizontal ? mTrace.getRawX(up) - mTrace.getRawX(first)
+                : mTrace.getRawY(up) - mTrace.getRawY(first);
+        float velocity = distance * 1000f / span;
+        float max = SnakeMath.MAX_RELEASE_VELOCITY;
+        return Math.max(-max, Math.min(max, velocity));
+    }
+}
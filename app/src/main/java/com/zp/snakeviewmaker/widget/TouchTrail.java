@@ -0,0 +1,145 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * a preallocated ring buffer of touch samples. segments read the position the finger
+ * had some milliseconds ago, linearly interpolated between the two nearest samples.
+ * plain java, no allocation after construction
+ */
+
+class TouchTrail {
+
+    private final long[] mTimes;
+    private final float[] mXs;
+    private final float[] mYs;
+    private int mStart = 0; // index of the oldest sample
+    private int mSize = 0;
+
+    TouchTrail(int capacity) {
+        mTimes = new long[capacity];
+        mXs = new float[capacity];
+        mYs = new float[capacity];
+    }
+
+    int capacity() {
+        return mTimes.length;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        mStart = 0;
+        mSize = 0;
+    }
+
+    /**
+     * append a sample, the oldest one is overwritten when the buffer is full.
+     * samples must be added in time order
+     */
+    void add(long time, float x, float y) {
+        int capacity = mTimes.length;
+        int index;
+        if (mSize < capacity) {
+            index = (mStart + mSize) % capacity;
+            mSize++;
+        } else {
+            index = mStart;
+            mStart = (mStart + 1) % capacity;
+        }
+        mTimes[index] = time;
+        mXs[index] = x;
+        mYs[index] = y;
+    }
+
+    long getLatestTime() {
+        return mSize == 0 ? 0 : mTimes[(mStart + mSize - 1) % mTimes.length];
+    }
+
+    /**
+     * write the trail position at the given time into out[index],
+     * times outside the recorded range are clamped to the first or last sample
+     *
+     * @return false if the trail is empty
+     */
+    boolean sample(long time, float[] outX, float[] outY, int index) {
+        if (mSize == 0)
+            return false;
+        int capacity = mTimes.length;
+        int newest = (mStart + mSize - 1) % capacity;
+        if (time >= mTimes[newest]) {
+            outX[index] = mXs[newest];
+            outY[index] = mYs[newest];
+            return true;
+        }
+        if (time <= mTimes[mStart]) {
+            outX[index] = mXs[mStart];
+            outY[index] = mYs[mStart];
+            return true;
+        }
+        // binary search the last sample not after time
+        int lo = 0;
+        int hi = mSize - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (mTimes[(mStart + mid) % capacity] <= time) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        int i0 = (mStart + lo) % capacity;
+        int i1 = (i0 + 1) % capacity;
+        long span = mTimes[i1] - mTimes[i0];
+        float fraction = span <= 0 ? 1f : (time - mTimes[i0]) * 1f / span;
+        outX[index] = mXs[i0] + (mXs[i1] - mXs[i0]) * fraction;
+        outY[index] = mYs[i0] + (mYs[i1] - mYs[i0]) * fraction;
+        return true;
+    }
+
+    /**
+     * the same as {@link #sample}, for callers which sample at decreasing times: the search walks
+     * back from the cursor returned by the previous call instead of starting over, so sampling
+     * every segment of a long snake costs O(samples + segments) per frame
+     *
+     * @param cursor size() - 1 for the first call, then the returned value
+     * @return the cursor for the next, older, sample
+     */
+    int sampleBackward(long time, float[] outX, float[] outY, int index, int cursor) {
+        if (mSize == 0)
+            return 0;
+        int capacity = mTimes.length;
+        int lo = Math.min(cursor, mSize - 1);
+        while (lo > 0 && mTimes[(mStart + lo) % capacity] > time)
+            lo--;
+        int i0 = (mStart + lo) % capacity;
+        if (lo == mSize - 1 || time <= mTimes[i0]) {
+            // newer than the newest sample, or older than the oldest one
+            outX[index] = mXs[i0];
+            outY[index] = mYs[i0];
+            return lo;
+        }
+        int i1 = (i0 + 1) % capacity;
+        long span = mTimes[i1] - mTimes[i0];
+        float fraction = span <= 0 ? 1f : (time - mTimes[i0]) * 1f / span;
+        outX[index] = mXs[i0] + (mXs[i1] - mXs[i0]) * fraction;
+        outY[index] = mYs[i0] + (mYs[i1] - mYs[i0]) * fraction;
+        return lo;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright  2017  zengp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zp.snakeviewmaker.widget;
+
+/**
+ * the default motion: segment i replays the finger trail (count - 1 - i) * segmentDelay ms late.
+ * after release a segment keeps following the trail until it reaches the point where the finger
+ * went up, then it overshoots back to the rest position. the whole release is evaluated per frame
+ * from the release time, no animator is involved
+ */
+
+public class TrailMotion implements SnakeMotion {
+
+    private static final int DEFAULT_RELEASE_DURATION = 700; // ms
+
+    private int mSegmentDelay;
+    private int mNextSegmentDelay; // the trail is sized for the delay in use, a new one waits for reset
+    private int mReleaseDuration = DEFAULT_RELEASE_DURATION;
+    private float mTension = SnakeMath.DEFAULT_OVERSHOOT_TENSION;
+    private int mCount = 0;
+    private TouchTrail mTrail = null;
+    private long mReleaseTime = -1; // -1 while dragging
+    private boolean mReleaseDone = false;
+    private float mReleaseX, mReleaseY; // where the finger went up
+    private final float[] mReleasePointX = new float[1];
+    private final float[] mReleasePointY = new float[1];
+    private float mRestX, mRestY;
+    private float[] mSeedX = new float[0]; // where the segments are when a drag interrupts them
+    private float[] mSeedY = new float[0];
+
+    /**
+     * @param segmentDelay how many ms each segment lags behind the next one
+     */
+    public TrailMotion(int segmentDelay) {
+        this.mSegmentDelay = segmentDelay;
+        this.mNextSegmentDelay = segmentDelay;
+    }
+
+    /**
+     * takes effect on the next reset
+     */
+    public TrailMotion setSegmentDelay(int segmentDelay) {
+        this.mNextSegmentDelay = segmentDelay;
+        return this;
+    }
+
+    /**
+     * the delay in use, not one set since the last reset
+     */
+    public int getSegmentDelay() {
+        return mSegmentDelay;
+    }
+
+    /**
+     * @param duration how long each segment takes to go back, in ms
+     */
+    public TrailMotion setReleaseDuration(int duration) {
+        this.mReleaseDuration = Math.max(0, duration);
+        return this;
+    }
+
+    /**
+     * @param tension the overshoot of the release, 0 for none
+     */
+    public TrailMotion setOvershootTension(float tension) {
+        this.mTension = tension;
+        return this;
+    }
+
+    @Override
+    public void reset(int count, float x, float y) {
+        mCount = count;
+        mSegmentDelay = mNextSegmentDelay;
+        // enough room for the whole trail at 240Hz touch sampling, plus one seed per segment
+        int capacity = mSegmentDelay * count / 4 + count + 16;
+        if (null == mTrail || mTrail.capacity() < capacity) {
+            mTrail = new TouchTrail(capacity);
+        }
+        if (mSeedX.length < count) {
+            mSeedX = new float[count];
+            mSeedY = new float[count];
+        }
+        mTrail.clear();
+        mReleaseTime = -1;
+        mReleaseDone = false;
+    }
+
+    @Override
+    public void startDrag(long time, float restX, float restY) {
+        // a release in progress is dropped where it is: the trail is seeded with the current
+        // position of each segment at the time that segment samples, so nothing jumps. at rest
+        // the trail starts from the rest position
+        int moving = mTrail.size() == 0 ? 0 : update(time, mSeedX, mSeedY);
+        mReleaseTime = -1;
+        mReleaseDone = false;
+        mTrail.clear();
+        if (moving == 0) {
+            mTrail.add(time, restX, restY);
+            return;
+        }
+        for (int i = 0; i < mCount; i++) {
+            long delay = (long) mSegmentDelay * (mCount - 1 - i);
+            mTrail.add(time - delay, mSeedX[i], mSeedY[i]);
+        }
+    }
+
+    @Override
+    public void addSample(long time, float x, float y) {
+        mTrail.add(time, x, y);
+    }
+
+    @Override
+    public void release(long time, float restX, float restY, float velocityX, float velocityY) {
+        if (mTrail.size() == 0)
+            return;
+        mReleaseTime = time;
+        mReleaseDone = false;
+        mRestX = restX;
+        mRestY = restY;
+        // each segment is handed over to the release exactly when its delayed trail position
+        // reaches the release time, so they all start from the last finger position
+        mTrail.sample(time, mReleasePointX, mReleasePointY, 0);
+        mReleaseX = mReleasePointX[0];
+        mReleaseY = mReleasePointY[0];
+    }
+
+    @Override
+    public int update(long time, float[] outX, float[] outY) {
+        if (mTrail.size() == 0 || mReleaseDone)
+            return 0;
+        int following = mCount;
+        long elapsed = time - mReleaseTime;
+        if (mReleaseTime >= 0 && elapsed >= 0) {
+            // the head side is released first, segment i is released once
+            // elapsed >= (count - 1 - i) * delay
+            following = mSegmentDelay <= 0 ? 0
+                    : (int) Math.max(0, mCount - 1 - elapsed / mSegmentDelay);
+            boolean done = true;
+            for (int i = following; i < mCount; i++) {
+                long start = (long) mSegmentDelay * (mCount - 1 - i);
+                float t = mReleaseDuration <= 0 ? 1f
+                        : Math.min(1f, (elapsed - start) * 1f / mReleaseDuration);
+                float fraction = t >= 1f ? 1f : SnakeMath.overshoot(mTension, t);
+                outX[i] = mReleaseX + (mRestX - mReleaseX) * fraction;
+                outY[i] = mReleaseY + (mRestY - mReleaseY) * fraction;
+                done &= t >= 1f;
+            }
+            // the tail is the last one back, the next update returns 0
+            mReleaseDone = following == 0 && done;
+        }
+        // from the head to the tail, each segment samples an older time than the previous one
+        int cursor = mTrail.size() - 1;
+        for (int i = following - 1; i >= 0; i--) {
+            long delay = (long) mSegmentDelay * (mCount - 1 - i);
+            cursor = mTrail.sampleBackward(time - delay, outX, outY, i, cursor);
+        }
+        return mCount;
+    }
+}
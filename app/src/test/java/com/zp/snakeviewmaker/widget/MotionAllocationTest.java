@@ -0,0 +1,54 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the motion part of the touch hot path, what every move and every frame runs, allocates
+ * nothing after warm-up. counted with the allocation counter of the hotspot jvm
+ */
+public class MotionAllocationTest {
+
+    private final Segments mSegments = new Segments(50);
+    private long mTime = 0;
+
+    @Test
+    public void trailMotionDoesNotAllocate() {
+        assertNoAllocation(new TrailMotion(30));
+    }
+
+    @Test
+    public void springChainMotionDoesNotAllocate() {
+        assertNoAllocation(new SpringChainMotion());
+    }
+
+    private void assertNoAllocation(SnakeMotion motion) {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long thread = Thread.currentThread().getId();
+        motion.reset(mSegments.count, 0, 0);
+        for (int i = 0; i < 20; i++)
+            gesture(motion);
+        long before = threads.getThreadAllocatedBytes(thread);
+        gesture(motion);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertEquals(0, allocated);
+    }
+
+    private void gesture(SnakeMotion motion) {
+        mTime += 1000;
+        motion.startDrag(mTime, 0, 0);
+        for (int i = 0; i < 120; i++) {
+            mTime += 8;
+            motion.addSample(mTime, i * 3, i * 2);
+            mSegments.update(motion, mTime);
+        }
+        motion.release(mTime, 0, 0, 800, -400);
+        mTime = mSegments.settle(motion, mTime, 8);
+    }
+}
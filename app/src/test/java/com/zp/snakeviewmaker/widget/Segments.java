@@ -0,0 +1,51 @@
+package com.zp.snakeviewmaker.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the positions a motion model moves the segments to, for the motion tests
+ */
+class Segments {
+
+    final int count;
+    final float[] x;
+    final float[] y;
+
+    Segments(int count) {
+        this.count = count;
+        this.x = new float[count];
+        this.y = new float[count];
+    }
+
+    /**
+     * @return the number of segments the motion moved
+     */
+    int update(SnakeMotion motion, long time) {
+        return motion.update(time, x, y);
+    }
+
+    /**
+     * run frames until the motion is at rest, no segment may ever be NaN
+     *
+     * @return the time of the last frame which moved something
+     */
+    long settle(SnakeMotion motion, long time, long frameInterval) {
+        for (int frames = 0; ; frames++) {
+            assertTrue("the motion never comes to rest", frames < 10000);
+            if (update(motion, time + frameInterval) == 0)
+                return time;
+            time += frameInterval;
+            for (int i = 0; i < count; i++)
+                assertFalse(Float.isNaN(x[i]) || Float.isNaN(y[i]));
+        }
+    }
+
+    void assertAllAt(float atX, float atY) {
+        for (int i = 0; i < count; i++) {
+            assertEquals(atX, x[i], 0.001f);
+            assertEquals(atY, y[i], 0.001f);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpringChainMotionTest {
+
+    private final Segments mSegments = new Segments(50);
+
+    @Test
+    public void headFollowsTheFinger() {
+        SpringChainMotion motion = new SpringChainMotion();
+        motion.reset(mSegments.count, 0, 0);
+        motion.startDrag(0, 0, 0);
+        motion.addSample(8, 300, 400);
+        assertEquals(mSegments.count, mSegments.update(motion, 8));
+        int head = mSegments.count - 1;
+        assertEquals(300, mSegments.x[head], 0.001f);
+        assertEquals(400, mSegments.y[head], 0.001f);
+    }
+
+    @Test
+    public void releaseSettlesAtRest() {
+        SpringChainMotion motion = new SpringChainMotion();
+        motion.reset(mSegments.count, 0, 0);
+        motion.startDrag(0, 0, 0);
+        long time = 0;
+        for (int i = 0; i < 60; i++) {
+            time += 8;
+            motion.addSample(time, (float) Math.cos(time / 300.0) * 400, (float) Math.sin(time / 300.0) * 400);
+            mSegments.update(motion, time);
+        }
+        motion.release(time, 0, 0, 1000, -1000);
+        time = mSegments.settle(motion, time, 8);
+        assertEquals(0, mSegments.update(motion, time + 16));
+    }
+
+    @Test
+    public void emptyChainIgnoresAGesture() {
+        SpringChainMotion motion = new SpringChainMotion();
+        motion.reset(0, 0, 0);
+        motion.startDrag(0, 0, 0);
+        motion.addSample(8, 300, 400);
+        motion.release(16, 0, 0, 1000, -1000);
+        assertEquals(0, mSegments.update(motion, 24));
+    }
+}
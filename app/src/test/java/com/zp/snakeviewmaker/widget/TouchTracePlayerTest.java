@@ -0,0 +1,88 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TouchTracePlayerTest {
+
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_UP = 1;
+    private static final int ACTION_MOVE = 2;
+    private static final int COUNT = 5;
+
+    private static class Recorder implements TouchTracePlayer.FrameCallback {
+        final List<float[]> frames = new ArrayList<>();
+        final List<Long> times = new ArrayList<>();
+
+        @Override
+        public void onFrame(long frameTime, float[] x, float[] y, int updated) {
+            times.add(frameTime);
+            float[] frame = new float[COUNT * 2];
+            System.arraycopy(x, 0, frame, 0, COUNT);
+            System.arraycopy(y, 0, frame, COUNT, COUNT);
+            frames.add(frame);
+        }
+    }
+
+    private static TouchTrace drag(long downTime) {
+        TouchTrace trace = new TouchTrace();
+        trace.setGeometry(0, 0, 50, 50, 100, 100);
+        trace.add(ACTION_DOWN, downTime, 50, 50);
+        for (long time = 8; time <= 400; time += 8)
+            trace.add(ACTION_MOVE, downTime + time, 50 + time, 50 + time / 2);
+        trace.add(ACTION_UP, downTime + 408, 458, 254, 900, 450);
+        return trace;
+    }
+
+    @Test
+    public void tapDoesNotMove() {
+        TouchTrace trace = new TouchTrace();
+        trace.add(ACTION_DOWN, 0, 50, 50);
+        trace.add(ACTION_MOVE, 50, 60, 60);
+        trace.add(ACTION_UP, 100, 60, 60, 0, 0);
+        Recorder recorder = new Recorder();
+        assertEquals(0, new TouchTracePlayer(trace, new TrailMotion(30), COUNT).play(16, recorder));
+        assertTrue(recorder.frames.isEmpty());
+    }
+
+    @Test
+    public void dragIsReplayedUntilTheSnakeRests() {
+        Recorder recorder = new Recorder();
+        int frames = new TouchTracePlayer(drag(0), new TrailMotion(30), COUNT).play(16, recorder);
+        assertEquals(recorder.frames.size(), frames);
+        // frames start with the first move after the drag delay and continue after the up
+        assertEquals(160, (long) recorder.times.get(0));
+        assertTrue(recorder.times.get(frames - 1) > 408);
+        float[] last = recorder.frames.get(frames - 1);
+        for (int i = 0; i < COUNT * 2; i++)
+            assertEquals(0, last[i], 0.001f);
+    }
+
+    @Test
+    public void replayIsDeterministic() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        new TouchTracePlayer(drag(0), new SpringChainMotion(), COUNT).play(16, first);
+        new TouchTracePlayer(drag(0), new SpringChainMotion(), COUNT).play(16, second);
+        assertEquals(first.frames.size(), second.frames.size());
+        for (int i = 0; i < first.frames.size(); i++)
+            assertTrue(Arrays.equals(first.frames.get(i), second.frames.get(i)));
+    }
+
+    @Test
+    public void tapDuringReleaseStopsTheSnake() {
+        TouchTrace trace = drag(0);
+        trace.add(ACTION_DOWN, 500, 50, 50);
+        trace.add(ACTION_UP, 550, 50, 50, 0, 0);
+        Recorder recorder = new Recorder();
+        new TouchTracePlayer(trace, new TrailMotion(30), COUNT).play(16, recorder);
+        // nothing moves after the tap
+        assertTrue(recorder.times.get(recorder.times.size() - 1) < 550);
+    }
+}
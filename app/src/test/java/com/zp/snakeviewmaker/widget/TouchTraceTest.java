@@ -0,0 +1,84 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TouchTraceTest {
+
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_UP = 1;
+    private static final int ACTION_MOVE = 2;
+
+    @Test
+    public void roundTrip() throws IOException {
+        TouchTrace trace = new TouchTrace();
+        trace.setGeometry(10, 20, 30, 40, 60, 80);
+        trace.add(ACTION_DOWN, 1000, 40, 60);
+        trace.add(ACTION_MOVE, 1008, 45.5f, 61.25f);
+        trace.add(ACTION_UP, 1200, 90, 70, 750, -120);
+
+        TouchTrace read = TouchTrace.readFrom(new ByteArrayInputStream(toBytes(trace)));
+        assertEquals(10, read.getRestX(), 0);
+        assertEquals(20, read.getRestY(), 0);
+        assertEquals(30, read.getOffsetX(), 0);
+        assertEquals(40, read.getOffsetY(), 0);
+        assertEquals(60, read.getTargetWidth());
+        assertEquals(80, read.getTargetHeight());
+        assertEquals(trace.size(), read.size());
+        for (int i = 0; i < trace.size(); i++) {
+            assertEquals(trace.getAction(i), read.getAction(i));
+            assertEquals(trace.getTime(i), read.getTime(i));
+            assertEquals(trace.getRawX(i), read.getRawX(i), 0);
+            assertEquals(trace.getRawY(i), read.getRawY(i), 0);
+        }
+        assertEquals(750, read.getVelocityX(2), 0);
+        assertEquals(-120, read.getVelocityY(2), 0);
+        assertTrue(Float.isNaN(read.getVelocityX(1)));
+    }
+
+    @Test
+    public void readsVersionOneWithoutVelocity() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0x534e4b54);
+        data.writeInt(1);
+        for (int i = 0; i < 4; i++)
+            data.writeFloat(0);
+        data.writeInt(100);
+        data.writeInt(100);
+        data.writeInt(2);
+        data.writeLong(500);
+        data.writeByte(ACTION_DOWN);
+        data.writeInt(0);
+        data.writeFloat(1);
+        data.writeFloat(2);
+        data.writeByte(ACTION_UP);
+        data.writeInt(300);
+        data.writeFloat(3);
+        data.writeFloat(4);
+
+        TouchTrace read = TouchTrace.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(2, read.size());
+        assertEquals(800, read.getTime(1));
+        assertEquals(3, read.getRawX(1), 0);
+        assertTrue(Float.isNaN(read.getVelocityX(1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherStreams() throws IOException {
+        TouchTrace.readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    static byte[] toBytes(TouchTrace trace) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.writeTo(out);
+        return out.toByteArray();
+    }
+}
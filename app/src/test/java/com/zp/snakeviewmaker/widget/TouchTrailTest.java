@@ -0,0 +1,70 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TouchTrailTest {
+
+    private final Segments mSample = new Segments(1);
+
+    @Test
+    public void sampleInterpolatesBetweenSamples() {
+        TouchTrail trail = new TouchTrail(8);
+        trail.add(0, 0, 0);
+        trail.add(10, 100, 50);
+        trail.sample(5, mSample.x, mSample.y, 0);
+        assertEquals(50, mSample.x[0], 0.001f);
+        assertEquals(25, mSample.y[0], 0.001f);
+    }
+
+    @Test
+    public void sampleClampsOutsideTheRecordedRange() {
+        TouchTrail trail = new TouchTrail(8);
+        trail.add(10, 1, 2);
+        trail.add(20, 3, 4);
+        trail.sample(0, mSample.x, mSample.y, 0);
+        assertEquals(1, mSample.x[0], 0);
+        assertEquals(2, mSample.y[0], 0);
+        trail.sample(30, mSample.x, mSample.y, 0);
+        assertEquals(3, mSample.x[0], 0);
+        assertEquals(4, mSample.y[0], 0);
+    }
+
+    @Test
+    public void emptyTrailHasNoSample() {
+        assertFalse(new TouchTrail(4).sample(0, mSample.x, mSample.y, 0));
+    }
+
+    @Test
+    public void oldestSampleIsOverwrittenWhenFull() {
+        TouchTrail trail = new TouchTrail(4);
+        for (int i = 0; i < 10; i++)
+            trail.add(i * 10, i, -i);
+        assertEquals(4, trail.size());
+        assertEquals(90, trail.getLatestTime());
+        // samples 6 to 9 are left, older times clamp to sample 6
+        trail.sample(0, mSample.x, mSample.y, 0);
+        assertEquals(6, mSample.x[0], 0);
+        trail.sample(75, mSample.x, mSample.y, 0);
+        assertEquals(7.5f, mSample.x[0], 0.001f);
+        assertEquals(-7.5f, mSample.y[0], 0.001f);
+    }
+
+    @Test
+    public void sampleBackwardMatchesSampleAcrossTheWrap() {
+        TouchTrail trail = new TouchTrail(16);
+        for (int i = 0; i < 37; i++)
+            trail.add(i * 8, i * 3, i * i);
+        Segments segments = new Segments(20);
+        int cursor = trail.size() - 1;
+        for (int i = segments.count - 1; i >= 0; i--) {
+            long time = 300 - 7 * (segments.count - 1 - i);
+            cursor = trail.sampleBackward(time, segments.x, segments.y, i, cursor);
+            trail.sample(time, mSample.x, mSample.y, 0);
+            assertEquals(mSample.x[0], segments.x[i], 0.001f);
+            assertEquals(mSample.y[0], segments.y[i], 0.001f);
+        }
+    }
+}
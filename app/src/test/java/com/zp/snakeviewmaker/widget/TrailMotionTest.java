@@ -0,0 +1,83 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrailMotionTest {
+
+    private static final int DELAY = 30;
+
+    private final Segments mSegments = new Segments(5);
+
+    private TrailMotion drag(long upTime) {
+        TrailMotion motion = new TrailMotion(DELAY);
+        motion.reset(mSegments.count, 0, 0);
+        motion.startDrag(0, 0, 0);
+        for (long time = 10; time <= upTime; time += 10)
+            motion.addSample(time, time * 2, time);
+        return motion;
+    }
+
+    @Test
+    public void segmentsFollowTheTrailLate() {
+        TrailMotion motion = drag(300);
+        assertEquals(mSegments.count, mSegments.update(motion, 300));
+        for (int i = 0; i < mSegments.count; i++) {
+            long delay = (long) DELAY * (mSegments.count - 1 - i);
+            assertEquals((300 - delay) * 2, mSegments.x[i], 0.001f);
+            assertEquals(300 - delay, mSegments.y[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void releaseEndsAtRest() {
+        TrailMotion motion = drag(300).setReleaseDuration(200);
+        motion.release(300, 10, 20, 0, 0);
+        long time = mSegments.settle(motion, 300, 16);
+        // the last frame put every segment back at rest
+        mSegments.assertAllAt(10, 20);
+        assertEquals(0, mSegments.update(motion, time + 32));
+    }
+
+    @Test
+    public void dragInterruptingAReleaseKeepsTheSegmentsInPlace() {
+        TrailMotion motion = drag(300);
+        motion.release(300, 0, 0, 0, 0);
+        mSegments.update(motion, 400);
+        float[] x = mSegments.x.clone();
+        float[] y = mSegments.y.clone();
+        motion.startDrag(400, 0, 0);
+        assertEquals(mSegments.count, mSegments.update(motion, 400));
+        for (int i = 0; i < mSegments.count; i++) {
+            assertEquals(x[i], mSegments.x[i], 0.001f);
+            assertEquals(y[i], mSegments.y[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void newSegmentDelayWaitsForTheNextReset() {
+        TrailMotion motion = drag(300);
+        motion.setSegmentDelay(DELAY * 4);
+        assertEquals(DELAY, motion.getSegmentDelay());
+        mSegments.update(motion, 300);
+        assertEquals(600 - DELAY * 2 * (mSegments.count - 1), mSegments.x[0], 0.001f);
+        motion.reset(mSegments.count, 0, 0);
+        assertEquals(DELAY * 4, motion.getSegmentDelay());
+        // the trail is sized for the new delay, at 250Hz the last segment still has its sample
+        motion.startDrag(0, 0, 0);
+        for (long time = 4; time <= 1000; time += 4)
+            motion.addSample(time, time * 2, time);
+        mSegments.update(motion, 1000);
+        assertEquals(2000 - DELAY * 4 * 2 * (mSegments.count - 1), mSegments.x[0], 0.001f);
+    }
+
+    @Test
+    public void dragAtRestStartsFromTheRestPosition() {
+        TrailMotion motion = new TrailMotion(DELAY);
+        motion.reset(mSegments.count, 0, 0);
+        motion.startDrag(0, 10, 20);
+        assertEquals(mSegments.count, mSegments.update(motion, 0));
+        mSegments.assertAllAt(10, 20);
+    }
+}
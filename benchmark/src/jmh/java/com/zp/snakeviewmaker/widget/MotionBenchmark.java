@@ -0,0 +1,80 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the motion models at 120Hz: one frame of a drag, and a whole gesture from the down until the
+ * release comes to rest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MotionBenchmark {
+
+    private static final int FRAME_INTERVAL = 8; // ms
+    private static final int GESTURE_FRAMES = 60;
+
+    @Param({"trail", "spring"})
+    public String model;
+
+    @Param({"5", "50"})
+    public int segments;
+
+    private SnakeMotion mMotion;
+    private float[] mX;
+    private float[] mY;
+    private long mTime;
+
+    @Setup
+    public void setUp() {
+        mMotion = "spring".equals(model) ? new SpringChainMotion() : new TrailMotion(SnakeMath.DEFAULT_SEGMENT_DELAY);
+        mMotion.reset(segments, 0, 0);
+        mX = new float[segments];
+        mY = new float[segments];
+        mTime = 0;
+        mMotion.startDrag(mTime, 0, 0);
+    }
+
+    @Benchmark
+    public int dragFrame() {
+        mTime += FRAME_INTERVAL;
+        mMotion.addSample(mTime, fingerX(mTime), fingerY(mTime));
+        return mMotion.update(mTime, mX, mY);
+    }
+
+    @Benchmark
+    public int gesture() {
+        mTime += 1000;
+        mMotion.startDrag(mTime, 0, 0);
+        int frames = 0;
+        for (int i = 0; i < GESTURE_FRAMES; i++) {
+            mTime += FRAME_INTERVAL;
+            mMotion.addSample(mTime, fingerX(mTime), fingerY(mTime));
+            mMotion.update(mTime, mX, mY);
+            frames++;
+        }
+        mMotion.release(mTime, 0, 0, 800, -400);
+        do {
+            mTime += FRAME_INTERVAL;
+            frames++;
+        } while (mMotion.update(mTime, mX, mY) > 0 && frames < 10000);
+        return frames;
+    }
+
+    private static float fingerX(long time) {
+        return (float) Math.cos(time / 300.0) * 400;
+    }
+
+    private static float fingerY(long time) {
+        return (float) Math.sin(time / 300.0) * 400;
+    }
+}
@@ -0,0 +1,69 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a recorded drag replayed through {@link TouchTracePlayer} at 60Hz, reported per touch event.
+ * the trace is a one second drag sampled at 120Hz, read back from its binary form the way a
+ * trace saved on a device is
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReplayBenchmark {
+
+    private static final int MOVES = 120;
+    private static final int EVENTS = MOVES + 2; // down, moves, up
+
+    @Param({"trail", "spring"})
+    public String model;
+
+    @Param({"5", "50"})
+    public int segments;
+
+    private TouchTrace mTrace;
+    private SnakeMotion mMotion;
+
+    @Setup
+    public void setUp() throws IOException {
+        TouchTrace trace = new TouchTrace();
+        trace.setGeometry(100, 100, 50, 50, 100, 100);
+        trace.add(0, 0, 150, 150);
+        for (int i = 1; i <= MOVES; i++) {
+            long time = i * 8L;
+            trace.add(2, time, 150 + (float) Math.cos(time / 300.0) * 400,
+                    150 + (float) Math.sin(time / 300.0) * 400);
+        }
+        trace.add(1, MOVES * 8L + 8, 150 + (float) Math.cos(MOVES * 8 / 300.0) * 400,
+                150 + (float) Math.sin(MOVES * 8 / 300.0) * 400, 800, -400);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.writeTo(out);
+        mTrace = TouchTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        mMotion = "spring".equals(model) ? new SpringChainMotion() : new TrailMotion(SnakeMath.DEFAULT_SEGMENT_DELAY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int replay(final Blackhole blackhole) {
+        return new TouchTracePlayer(mTrace, mMotion, segments).play(16, new TouchTracePlayer.FrameCallback() {
+            @Override
+            public void onFrame(long frameTime, float[] x, float[] y, int updated) {
+                blackhole.consume(x[0] + y[0]);
+            }
+        });
+    }
+}
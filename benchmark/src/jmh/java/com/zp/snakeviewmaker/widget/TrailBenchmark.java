@@ -0,0 +1,69 @@
+package com.zp.snakeviewmaker.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the trail math of one frame: every segment samples the finger trail at its own delay,
+ * and every released segment evaluates the overshoot curve
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TrailBenchmark {
+
+    private static final int SEGMENT_DELAY = SnakeMath.DEFAULT_SEGMENT_DELAY;
+    private static final int SAMPLE_INTERVAL = 8; // ms, 120Hz touch sampling
+
+    @Param({"5", "50"})
+    public int segments;
+
+    private TouchTrail mTrail;
+    private float[] mX;
+    private float[] mY;
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        // the same capacity as TrailMotion, filled the way a long drag fills it
+        mTrail = new TouchTrail(SEGMENT_DELAY * segments / 4 + segments + 16);
+        for (int i = 0; i < mTrail.capacity(); i++) {
+            long time = (long) i * SAMPLE_INTERVAL;
+            mTrail.add(time, (float) Math.cos(time / 300.0) * 400, (float) Math.sin(time / 300.0) * 400);
+        }
+        mNow = mTrail.getLatestTime();
+        mX = new float[segments];
+        mY = new float[segments];
+    }
+
+    @Benchmark
+    public float sample() {
+        for (int i = segments - 1; i >= 0; i--)
+            mTrail.sample(mNow - (long) SEGMENT_DELAY * (segments - 1 - i), mX, mY, i);
+        return mX[0] + mY[0];
+    }
+
+    @Benchmark
+    public float sampleBackward() {
+        int cursor = mTrail.size() - 1;
+        for (int i = segments - 1; i >= 0; i--)
+            cursor = mTrail.sampleBackward(mNow - (long) SEGMENT_DELAY * (segments - 1 - i), mX, mY, i, cursor);
+        return mX[0] + mY[0];
+    }
+
+    @Benchmark
+    public float overshoot() {
+        float sum = 0;
+        for (int i = 0; i < segments; i++)
+            sum += SnakeMath.overshoot(SnakeMath.DEFAULT_OVERSHOOT_TENSION, (i + 0.5f) / segments);
+        return sum;
+    }
+}